@@ -2,6 +2,7 @@ plugins {
     id("java")
     id("org.jetbrains.kotlin.jvm") version "2.1.0"
     id("org.jetbrains.intellij.platform") version "2.5.0"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.kirv.plugin"
@@ -23,11 +24,25 @@ dependencies {
     intellijPlatform {
         create(platformType, platformVersion)
         //create("PC", "2024.3.1")
-        //testFramework(org.jetbrains.intellij.platform.gradle.TestFrameworkType.Platform)
+        testFramework(org.jetbrains.intellij.platform.gradle.TestFrameworkType.Platform)
 
         // Add necessary plugin dependencies for compilation here, example:
         // bundledPlugin("com.intellij.java")
     }
+
+    testImplementation("junit:junit:4.13.2")
+    testImplementation("org.opentest4j:opentest4j:1.3.0")
+
+    // benchmarks only touch IDE-free classes; Gson comes with the platform at plugin runtime
+    jmh("com.google.code.gson:gson:2.11.0")
+}
+
+// Headless benchmarks of the bridge hot paths: ./gradlew jmh
+jmh {
+    warmupIterations = 2
+    iterations = 5
+    fork = 1
+    resultFormat = "JSON"
 }
 
 intellijPlatform {
@@ -48,6 +63,15 @@ tasks {
         sourceCompatibility = "21"
         targetCompatibility = "21"
     }
+
+    test {
+        // the latency suite needs JCEF; off-screen rendering lets it run without a display
+        systemProperty("ide.browser.jcef.headless.enabled", "true")
+        systemProperty("ide.browser.jcef.osr.enabled", "true")
+        providers.gradleProperty("agentLatencyMaxP50Ms").orNull?.let { systemProperty("agent.latency.maxP50Ms", it) }
+        providers.gradleProperty("agentLatencyMaxP99Ms").orNull?.let { systemProperty("agent.latency.maxP99Ms", it) }
+        providers.gradleProperty("agentLatencyMaxReadyMs").orNull?.let { systemProperty("agent.latency.maxReadyMs", it) }
+    }
 }
 
 tasks.named<Jar>("jar") {
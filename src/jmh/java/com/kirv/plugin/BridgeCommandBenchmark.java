@@ -0,0 +1,51 @@
+package com.kirv.plugin;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of bridge requests as done by {@code JsTransport.onQuery} and {@code onCallback}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class BridgeCommandBenchmark {
+    private String openFile;
+    private String readFiles;
+    private String batch;
+
+    @Setup
+    public void setUp() {
+        openFile = "jide_open_file//src/main/java/com/kirv/plugin/JsTransport.java";
+
+        StringBuilder read = new StringBuilder("jide_read_files");
+        StringBuilder commands = new StringBuilder("[");
+        for (int i = 0; i < 50; i++) {
+            read.append("//src/main/java/com/example/module").append(i).append("/Service").append(i).append(".java");
+            if (i > 0) {
+                commands.append(',');
+            }
+            commands.append("{\"op\":\"jide_open_file\",\"args\":[\"src/File").append(i).append(".java\"]}");
+        }
+        readFiles = read.toString();
+        batch = commands.append(']').toString();
+    }
+
+    @Benchmark
+    public BridgeCommand parseSingle() {
+        return BridgeCommand.parse(openFile);
+    }
+
+    @Benchmark
+    public BridgeCommand parseManyArgs() {
+        return BridgeCommand.parse(readFiles);
+    }
+
+    @Benchmark
+    public void parseBatch(Blackhole blackhole) {
+        blackhole.consume(BridgeCommand.isBatch(batch));
+        blackhole.consume(BridgeCommand.parseBatch(batch));
+    }
+}
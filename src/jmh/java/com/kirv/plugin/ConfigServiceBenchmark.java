@@ -0,0 +1,39 @@
+package com.kirv.plugin;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code ConfigService.loadConfigFile}, which runs on every app load and several background tasks.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class ConfigServiceBenchmark {
+    private Path configFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        configFile = Files.createTempFile("code_agent_cnfg", ".env");
+        try (InputStream example = getClass().getClassLoader().getResourceAsStream("META-INF/code_agent_cnfg.example")) {
+            Files.write(configFile, example.readAllBytes());
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(configFile);
+    }
+
+    @Benchmark
+    public Integer loadConfigFile() {
+        ConfigService configService = new ConfigService(configFile);
+        configService.loadConfigFile();
+        return configService.getPort();
+    }
+}
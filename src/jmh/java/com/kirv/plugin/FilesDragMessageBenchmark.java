@@ -0,0 +1,48 @@
+package com.kirv.plugin;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code @file} message building for dropped files, as done by {@code JcefBrowser.onFilesDrag}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class FilesDragMessageBenchmark {
+    private static final String BASE_PATH = "/home/user/projects/agent";
+
+    @Param({"10000", "50000", "100000"})
+    public int files;
+
+    private List<File> dropped;
+    private List<String> relativePaths;
+
+    @Setup
+    public void setUp() {
+        dropped = new ArrayList<>(files);
+        for (int i = 0; i < files; i++) {
+            dropped.add(new File(BASE_PATH + "/src/module" + (i % 100) + "/pkg" + (i % 7) + "/File" + i + ".java"));
+        }
+        relativePaths = FilesDragMessage.relativize(dropped, BASE_PATH);
+    }
+
+    @Benchmark
+    public List<String> relativize() {
+        return FilesDragMessage.relativize(dropped, BASE_PATH);
+    }
+
+    @Benchmark
+    public String legacyMessage() {
+        return FilesDragMessage.toLegacyMessage(relativePaths);
+    }
+
+    @Benchmark
+    public List<List<String>> chunks() {
+        return FilesDragMessage.chunks(relativePaths);
+    }
+}
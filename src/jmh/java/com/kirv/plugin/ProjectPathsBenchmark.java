@@ -0,0 +1,83 @@
+package com.kirv.plugin;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Path resolution of {@code JsTransport.getProjectFile} with the VFS stubbed out: absolute conversion,
+ * conversion plus a disk check, and the canonicalizing {@link ProjectPaths#toProjectFile} over a mix of
+ * existing files, missing files and paths escaping the project.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class ProjectPathsBenchmark {
+    private static final int FILES = 1000;
+    // one request in ten names a missing file and one in ten leaves the project
+    private static final int MISS_EVERY = 10;
+
+    private Path baseDir;
+    private String[] relativePaths;
+    private String[] mixedPaths;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        baseDir = Files.createTempDirectory("agent-bench");
+        relativePaths = new String[FILES];
+        mixedPaths = new String[FILES];
+        for (int i = 0; i < FILES; i++) {
+            String relative = "src/pkg" + (i % 10) + "/File" + i + ".java";
+            Path file = baseDir.resolve(relative);
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, "class File" + i + " {}");
+            relativePaths[i] = relative;
+            mixedPaths[i] = switch (i % MISS_EVERY) {
+                case 3 -> "src/pkg" + (i % 10) + "/Missing" + i + ".java";
+                case 7 -> "src/pkg" + (i % 10) + "/../../../outside/File" + i + ".java";
+                default -> relative;
+            };
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (var paths = Files.walk(baseDir)) {
+            paths.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private String nextPath() {
+        next = (next + 1) % FILES;
+        return relativePaths[next];
+    }
+
+    private String nextMixedPath() {
+        next = (next + 1) % FILES;
+        return mixedPaths[next];
+    }
+
+    @Benchmark
+    public File toIoFile() {
+        return ProjectPaths.toIoFile(baseDir.toString(), nextPath());
+    }
+
+    @Benchmark
+    public boolean uncachedResolve() {
+        return ProjectPaths.toIoFile(baseDir.toString(), nextPath()).exists();
+    }
+
+    @Benchmark
+    public File projectFileResolve() {
+        try {
+            return ProjectPaths.toProjectFile(baseDir.toString(), nextMixedPath());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.kirv.plugin;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder events for agent plugin activity, so IDE stalls in a recording can be matched
+ * with what the agent was doing. Each event's duration is the time between {@code begin()} and
+ * {@code commit()}.
+ * <p>
+ * Callers create the event, call {@code begin()}, and fill in fields only when
+ * {@code shouldCommit()} is true. While no recording is running that check is a constant false once
+ * JIT-compiled, and the unused event object is eliminated by escape analysis.
+ */
+final class AgentJfrEvents {
+    private static final String CATEGORY = "Agent Plugin";
+
+    private AgentJfrEvents() {
+    }
+
+    @Name("com.kirv.plugin.PageLoad")
+    @Label("Agent Page Load")
+    @Description("Main frame load of the agent web UI, from load start to load end or error")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class PageLoad extends Event {
+        @Label("URL")
+        String url;
+
+        @Label("HTTP Status")
+        int httpStatus;
+
+        @Label("Error")
+        String error;
+    }
+
+    @Name("com.kirv.plugin.BridgeCall")
+    @Label("Agent Bridge Call")
+    @Description("One JS bridge command executed by JsTransport")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class BridgeCall extends Event {
+        @Label("Opcode")
+        String opCode;
+
+        @Label("Arguments")
+        int argCount;
+
+        @Label("Request Characters")
+        long requestChars;
+
+        @Label("Response Characters")
+        long responseChars;
+
+        @Label("Failed")
+        boolean failed;
+    }
+
+    @Name("com.kirv.plugin.FilesDrag")
+    @Label("Agent Files Drag")
+    @Description("Files dropped on or added to the agent context, relativized and pushed to the web UI")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class FilesDrag extends Event {
+        @Label("Files")
+        int files;
+
+        @Label("Paths Sent")
+        int paths;
+
+        @Label("Chunks")
+        int chunks;
+    }
+
+    @Name("com.kirv.plugin.EditorOpen")
+    @Label("Agent Editor Open")
+    @Description("Editor or diff opened on behalf of the agent, from request to the window being shown")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class EditorOpen extends Event {
+        @Label("Kind")
+        String kind;
+
+        @Label("Path")
+        String path;
+
+        @Label("Size")
+        @DataAmount(DataAmount.BYTES)
+        long bytes;
+
+        @Label("EDT Time")
+        @Description("Part of the duration spent on the event dispatch thread")
+        @Timespan(Timespan.NANOSECONDS)
+        long edtTime;
+    }
+}
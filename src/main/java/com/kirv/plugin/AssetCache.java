@@ -0,0 +1,392 @@
+package com.kirv.plugin;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Application-wide cache of the web UI's static assets (scripts, styles, fonts, images) fetched from
+ * the local agent server, so opening or refreshing the agent window does not download the bundle again.
+ * <p>
+ * Assets live in a memory LRU of {@code ASSET_CACHE_MEMORY_MB} backed by a directory of
+ * {@code ASSET_CACHE_DISK_MB} in the IDE's system folder. A cached asset is served at once; if it was
+ * not validated during the last {@link #REVALIDATE_AFTER_MS} it is revalidated in the background with
+ * {@code If-None-Match}, or by comparing content hashes when the server sends no ETag, and the next
+ * load gets the new version. Disk entries are checked against their content hash when read.
+ * <p>
+ * Only assets of the agent server on the configured {@code HTTP_PORT} are cached. Just memory hits
+ * are answered on the caller's thread; disk reads and downloads run on a pooled thread.
+ */
+@Service(Service.Level.APP)
+public final class AssetCache {
+    private static final Logger LOG = Logger.getInstance(AssetCache.class);
+    static final int MAX_ASSET_BYTES = 8 * 1024 * 1024;
+    private static final long REVALIDATE_AFTER_MS = 60_000;
+    private static final Duration FETCH_TIMEOUT = Duration.ofSeconds(30);
+    private static final Set<String> EXTENSIONS = Set.of(
+            "js", "mjs", "css", "map", "woff", "woff2", "ttf", "otf", "eot",
+            "png", "jpg", "jpeg", "gif", "svg", "ico", "webp");
+    private static final ExecutorService EXECUTOR =
+            AppExecutorUtil.createBoundedApplicationPoolExecutor("Agent asset cache", 2);
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .proxy(HttpClient.Builder.NO_PROXY)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    // access-ordered: the eldest entry is the least recently served asset
+    private final LinkedHashMap<String, Asset> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+    private final Path diskDir;
+    private final long memoryLimit;
+    private final long diskLimit;
+    private long memoryBytes;
+    private long diskBytes = -1;
+    private volatile int agentPort;
+
+    AssetCache() {
+        ConfigService configService = new ConfigService();
+        configService.loadConfigFile();
+        memoryLimit = configService.getAssetCacheMemoryMb() * 1024L * 1024L;
+        diskLimit = configService.getAssetCacheDiskMb() * 1024L * 1024L;
+        agentPort = configService.getPort();
+        diskDir = Path.of(PathManager.getSystemPath(), "agent-assets");
+    }
+
+    boolean isEnabled() {
+        return memoryLimit > 0 || diskLimit > 0;
+    }
+
+    /**
+     * Follows the {@code HTTP_PORT} setting when the agent window re-reads its config.
+     */
+    void setAgentPort(int port) {
+        agentPort = port;
+    }
+
+    boolean isCacheable(String method, String url) {
+        return isCacheable(method, url, agentPort);
+    }
+
+    /**
+     * Whether {@code url} is a static asset served by the agent server on {@code port}; pages, API
+     * calls and other local services are never cached.
+     */
+    static boolean isCacheable(String method, String url, int port) {
+        if (!"GET".equals(method) || url == null) {
+            return false;
+        }
+        URI uri;
+        try {
+            uri = new URI(url);
+        } catch (URISyntaxException e) {
+            return false;
+        }
+        String host = uri.getHost();
+        String path = uri.getPath();
+        int urlPort = uri.getPort() < 0 ? 80 : uri.getPort();
+        if (!"http".equals(uri.getScheme()) || path == null || urlPort != port
+                || !("localhost".equals(host) || "127.0.0.1".equals(host) || "[::1]".equals(host))) {
+            return false;
+        }
+        int dot = path.lastIndexOf('.');
+        return dot > path.lastIndexOf('/') && EXTENSIONS.contains(path.substring(dot + 1).toLowerCase());
+    }
+
+    /**
+     * Returns the asset if it is in memory, starting a background revalidation when it is due, or
+     * {@code null}. Never touches the disk, so it is safe on the CEF IO thread.
+     */
+    Asset lookupInMemory(String url) {
+        Asset asset;
+        synchronized (memory) {
+            asset = memory.get(url);
+        }
+        revalidateIfDue(url, asset);
+        return asset;
+    }
+
+    /**
+     * Loads an asset missing from memory, from disk or else from the server, and hands it, or
+     * {@code null} when the server could not be reached, to {@code done} on a pooled thread.
+     */
+    void loadAsync(String url, Consumer<Asset> done) {
+        EXECUTOR.execute(() -> {
+            Asset asset = readDisk(url);
+            if (asset != null) {
+                putMemory(url, asset);
+                revalidateIfDue(url, asset);
+            } else {
+                asset = fetch(url, null);
+            }
+            done.accept(asset);
+        });
+    }
+
+    private void revalidateIfDue(String url, Asset asset) {
+        if (asset != null && System.currentTimeMillis() - asset.validatedAt > REVALIDATE_AFTER_MS && revalidating.add(url)) {
+            Asset stale = asset;
+            EXECUTOR.execute(() -> {
+                try {
+                    fetch(url, stale);
+                } finally {
+                    revalidating.remove(url);
+                }
+            });
+        }
+    }
+
+    private Asset fetch(String url, Asset cached) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url)).timeout(FETCH_TIMEOUT).GET();
+        if (cached != null && cached.etag != null) {
+            request.header("If-None-Match", cached.etag);
+        }
+
+        HttpResponse<byte[]> response;
+        try {
+            response = http.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            LOG.debug("Asset fetch failed: " + url, e);
+            return cached;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return cached;
+        }
+
+        if (response.statusCode() == 304 && cached != null) {
+            cached.validatedAt = System.currentTimeMillis();
+            return cached;
+        }
+
+        byte[] body = response.body();
+        String hash = sha256(body);
+        if (response.statusCode() == 200 && cached != null && hash.equals(cached.hash)) {
+            cached.validatedAt = System.currentTimeMillis();
+            return cached;
+        }
+        Asset asset = new Asset(response.statusCode(), body,
+                response.headers().firstValue("Content-Type").orElse(null),
+                response.headers().firstValue("ETag").orElse(null),
+                hash, System.currentTimeMillis());
+        // errors and no-store responses are passed through once, never stored
+        boolean storable = response.statusCode() == 200
+                && !response.headers().firstValue("Cache-Control").orElse("").contains("no-store");
+        if (!storable) {
+            remove(url);
+        } else if (body.length <= MAX_ASSET_BYTES) {
+            putMemory(url, asset);
+            writeDisk(url, asset);
+        }
+        return asset;
+    }
+
+    private void putMemory(String url, Asset asset) {
+        if (asset.body.length > memoryLimit) {
+            return;
+        }
+        synchronized (memory) {
+            Asset previous = memory.put(url, asset);
+            memoryBytes += asset.body.length - (previous != null ? previous.body.length : 0);
+            Iterator<Asset> eldest = memory.values().iterator();
+            while (memoryBytes > memoryLimit && eldest.hasNext()) {
+                memoryBytes -= eldest.next().body.length;
+                eldest.remove();
+            }
+        }
+    }
+
+    private void remove(String url) {
+        synchronized (memory) {
+            Asset previous = memory.remove(url);
+            if (previous != null) {
+                memoryBytes -= previous.body.length;
+            }
+        }
+        if (diskLimit > 0) {
+            String key = keyOf(url);
+            deleteDiskEntry(diskDir.resolve(key + ".body"));
+        }
+    }
+
+    private Asset readDisk(String url) {
+        if (diskLimit <= 0) {
+            return null;
+        }
+        String key = keyOf(url);
+        Path bodyFile = diskDir.resolve(key + ".body");
+        Path metaFile = diskDir.resolve(key + ".meta");
+        if (!Files.isRegularFile(bodyFile) || !Files.isRegularFile(metaFile)) {
+            return null;
+        }
+
+        try {
+            Properties meta = new Properties();
+            try (InputStream in = Files.newInputStream(metaFile)) {
+                meta.load(in);
+            }
+            byte[] body = Files.readAllBytes(bodyFile);
+            String hash = meta.getProperty("hash");
+            if (!url.equals(meta.getProperty("url")) || hash == null || !hash.equals(sha256(body))) {
+                // truncated or stale write: drop it and fetch again
+                deleteDiskEntry(bodyFile);
+                return null;
+            }
+            Files.setLastModifiedTime(bodyFile, FileTime.fromMillis(System.currentTimeMillis()));
+            // validatedAt 0: revalidate once per IDE session
+            return new Asset(200, body, meta.getProperty("contentType"), meta.getProperty("etag"), hash, 0);
+        } catch (IOException e) {
+            LOG.debug("Cannot read cached asset: " + url, e);
+            return null;
+        }
+    }
+
+    private void writeDisk(String url, Asset asset) {
+        if (diskLimit <= 0 || asset.body.length > diskLimit) {
+            return;
+        }
+        String key = keyOf(url);
+        Path bodyFile = diskDir.resolve(key + ".body");
+        try {
+            Files.createDirectories(diskDir);
+            Properties meta = new Properties();
+            meta.setProperty("url", url);
+            meta.setProperty("hash", asset.hash);
+            if (asset.contentType != null) {
+                meta.setProperty("contentType", asset.contentType);
+            }
+            if (asset.etag != null) {
+                meta.setProperty("etag", asset.etag);
+            }
+
+            synchronized (diskDir) {
+                long previousSize = Files.isRegularFile(bodyFile) ? Files.size(bodyFile) : 0;
+                Path tmp = Files.createTempFile(diskDir, key, ".tmp");
+                Files.write(tmp, asset.body);
+                Files.move(tmp, bodyFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                try (OutputStream out = Files.newOutputStream(diskDir.resolve(key + ".meta"))) {
+                    meta.store(out, null);
+                }
+                diskBytes = diskUsage() + asset.body.length - previousSize;
+                trimDisk();
+            }
+        } catch (IOException e) {
+            LOG.debug("Cannot write cached asset: " + url, e);
+        }
+    }
+
+    /**
+     * Deletes the least recently used entries until the disk cache is back under 90% of its limit.
+     */
+    private void trimDisk() throws IOException {
+        if (diskBytes <= diskLimit) {
+            return;
+        }
+        List<Path> bodies = new ArrayList<>();
+        try (Stream<Path> files = Files.list(diskDir)) {
+            files.filter(file -> file.getFileName().toString().endsWith(".body")).forEach(bodies::add);
+        }
+        bodies.sort(Comparator.comparing(file -> {
+            try {
+                return Files.getLastModifiedTime(file);
+            } catch (IOException e) {
+                return FileTime.fromMillis(0);
+            }
+        }));
+        for (Path body : bodies) {
+            if (diskBytes <= diskLimit * 9 / 10) {
+                break;
+            }
+            diskBytes -= Files.size(body);
+            deleteDiskEntry(body);
+        }
+    }
+
+    private long diskUsage() throws IOException {
+        if (diskBytes < 0) {
+            long total = 0;
+            try (Stream<Path> files = Files.list(diskDir)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    if (file.getFileName().toString().endsWith(".body")) {
+                        total += Files.size(file);
+                    }
+                }
+            }
+            diskBytes = total;
+        }
+        return diskBytes;
+    }
+
+    private static void deleteDiskEntry(Path bodyFile) {
+        String name = bodyFile.getFileName().toString();
+        try {
+            Files.deleteIfExists(bodyFile);
+            Files.deleteIfExists(bodyFile.resolveSibling(name.substring(0, name.length() - ".body".length()) + ".meta"));
+        } catch (IOException e) {
+            LOG.debug("Cannot delete cached asset " + bodyFile, e);
+        }
+    }
+
+    private static String keyOf(String url) {
+        return sha256(url.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static AssetCache getInstance() {
+        return ApplicationManager.getApplication().getService(AssetCache.class);
+    }
+
+    static final class Asset {
+        final int status;
+        final byte[] body;
+        final String contentType;
+        final String etag;
+        final String hash;
+        volatile long validatedAt;
+
+        Asset(int status, byte[] body, String contentType, String etag, String hash, long validatedAt) {
+            this.status = status;
+            this.body = body;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.hash = hash;
+            this.validatedAt = validatedAt;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.kirv.plugin;
+
+import org.cef.browser.CefBrowser;
+import org.cef.browser.CefFrame;
+import org.cef.callback.CefCallback;
+import org.cef.handler.CefRequestHandlerAdapter;
+import org.cef.handler.CefResourceHandler;
+import org.cef.handler.CefResourceHandlerAdapter;
+import org.cef.handler.CefResourceRequestHandler;
+import org.cef.handler.CefResourceRequestHandlerAdapter;
+import org.cef.misc.BoolRef;
+import org.cef.misc.IntRef;
+import org.cef.misc.StringRef;
+import org.cef.network.CefRequest;
+import org.cef.network.CefResponse;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Serves the web UI's static assets from {@link AssetCache} instead of the network. Navigations and
+ * everything that is not a script, style, font or image go to the agent server as usual.
+ */
+final class AssetRequestHandler extends CefRequestHandlerAdapter {
+    private final AssetCache cache;
+    private final CefResourceRequestHandler resourceRequestHandler = new CefResourceRequestHandlerAdapter() {
+        @Override
+        public CefResourceHandler getResourceHandler(CefBrowser browser, CefFrame frame, CefRequest request) {
+            String url = request.getURL();
+            return new CachedResource(cache, url, cache.lookupInMemory(url));
+        }
+    };
+
+    AssetRequestHandler(AssetCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public CefResourceRequestHandler getResourceRequestHandler(CefBrowser browser, CefFrame frame, CefRequest request,
+            boolean isNavigation, boolean isDownload, String requestInitiator, BoolRef disableDefaultHandling) {
+        if (isNavigation || isDownload || !cache.isCacheable(request.getMethod(), request.getURL())) {
+            return null;
+        }
+        return resourceRequestHandler;
+    }
+
+    /**
+     * One response, either a memory hit or read from disk or downloaded on a pooled thread before
+     * CEF reads it.
+     */
+    private static final class CachedResource extends CefResourceHandlerAdapter {
+        private final AssetCache cache;
+        private final String url;
+        private volatile AssetCache.Asset asset;
+        private int offset;
+
+        CachedResource(AssetCache cache, String url, AssetCache.Asset asset) {
+            this.cache = cache;
+            this.url = url;
+            this.asset = asset;
+        }
+
+        @Override
+        public boolean processRequest(CefRequest request, CefCallback callback) {
+            if (asset != null) {
+                callback.Continue();
+                return true;
+            }
+            // called on the CEF IO thread: never wait for the disk or the server here
+            cache.loadAsync(url, fetched -> {
+                if (fetched == null) {
+                    callback.cancel();
+                } else {
+                    asset = fetched;
+                    callback.Continue();
+                }
+            });
+            return true;
+        }
+
+        @Override
+        public void getResponseHeaders(CefResponse response, IntRef responseLength, StringRef redirectUrl) {
+            AssetCache.Asset served = asset;
+            String contentType = served.contentType != null ? served.contentType : "application/octet-stream";
+            int separator = contentType.indexOf(';');
+
+            Map<String, String> headers = new HashMap<>();
+            headers.put("Content-Type", contentType);
+            if (served.etag != null) {
+                headers.put("ETag", served.etag);
+            }
+            response.setStatus(served.status);
+            response.setStatusText(served.status == 200 ? "OK" : "");
+            response.setMimeType((separator < 0 ? contentType : contentType.substring(0, separator)).trim());
+            response.setHeaderMap(headers);
+            responseLength.set(served.body.length);
+        }
+
+        @Override
+        public boolean readResponse(byte[] dataOut, int bytesToRead, IntRef bytesRead, CefCallback callback) {
+            byte[] body = asset.body;
+            int count = Math.min(bytesToRead, body.length - offset);
+            if (count <= 0) {
+                bytesRead.set(0);
+                return false;
+            }
+            System.arraycopy(body, offset, dataOut, 0, count);
+            offset += count;
+            bytesRead.set(count);
+            return true;
+        }
+    }
+}
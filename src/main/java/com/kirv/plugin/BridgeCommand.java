@@ -0,0 +1,142 @@
+package com.kirv.plugin;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Parsed bridge command: an opcode plus its positional string arguments.
+ * <p>
+ * Single commands keep the legacy {@code opcode//arg1//arg2} format. A batch is a JSON array
+ * whose entries are either legacy command strings or objects like
+ * {@code {"op": "jide_open_file", "args": ["src/Main.java"]}}.
+ * <p>
+ * Commands in {@link #RAW_ARGUMENT_OPS} carry free text such as diffs, which may itself contain
+ * {@code //}: in the legacy format everything after the opcode is their single argument.
+ */
+final class BridgeCommand {
+    static final String SEPARATOR = "/\\/";
+    private static final String RAW_SEPARATOR = "//";
+    static final Set<String> RAW_ARGUMENT_OPS = Set.of("jide_apply_patch");
+
+    private final String opCode;
+    private final List<String> args;
+
+    BridgeCommand(String opCode, List<String> args) {
+        this.opCode = opCode;
+        this.args = args;
+    }
+
+    String opCode() {
+        return opCode;
+    }
+
+    int argCount() {
+        return args.size();
+    }
+
+    String arg(int index) {
+        if (index < 0 || index >= args.size()) {
+            throw new IllegalArgumentException("wrong_command_arguments");
+        }
+        return args.get(index);
+    }
+
+    List<String> args() {
+        return args;
+    }
+
+    static boolean isBatch(String request) {
+        if (request == null) {
+            return false;
+        }
+        for (int i = 0; i < request.length(); i++) {
+            char c = request.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                return c == '[';
+            }
+        }
+        return false;
+    }
+
+    static BridgeCommand parse(String command) {
+        if (command == null) {
+            throw new IllegalArgumentException("wrong_command");
+        }
+
+        int rawStart = command.indexOf(RAW_SEPARATOR);
+        if (rawStart > 0 && RAW_ARGUMENT_OPS.contains(command.substring(0, rawStart))) {
+            return new BridgeCommand(command.substring(0, rawStart),
+                    List.of(command.substring(rawStart + RAW_SEPARATOR.length())));
+        }
+
+        String[] commandAndArgs = command.split(SEPARATOR);
+        if (commandAndArgs.length == 0) {
+            throw new IllegalArgumentException("wrong_command_arguments");
+        }
+
+        List<String> args = commandAndArgs.length == 1
+                ? Collections.emptyList()
+                : Arrays.asList(commandAndArgs).subList(1, commandAndArgs.length);
+        return new BridgeCommand(commandAndArgs[0], args);
+    }
+
+    /**
+     * Parses a batch envelope. Entries that cannot be parsed are returned as {@code null}
+     * so the caller can report a per-entry error and keep the result indexes aligned.
+     */
+    static List<BridgeCommand> parseBatch(String request) {
+        JsonElement root;
+        try {
+            root = JsonParser.parseString(request);
+        } catch (JsonParseException e) {
+            throw new IllegalArgumentException("wrong_batch");
+        }
+        if (!root.isJsonArray()) {
+            throw new IllegalArgumentException("wrong_batch");
+        }
+
+        JsonArray entries = root.getAsJsonArray();
+        List<BridgeCommand> commands = new ArrayList<>(entries.size());
+        for (JsonElement entry : entries) {
+            commands.add(parseBatchEntry(entry));
+        }
+        return commands;
+    }
+
+    private static BridgeCommand parseBatchEntry(JsonElement entry) {
+        try {
+            if (entry.isJsonPrimitive() && entry.getAsJsonPrimitive().isString()) {
+                return parse(entry.getAsString());
+            }
+            if (!entry.isJsonObject()) {
+                return null;
+            }
+
+            JsonObject object = entry.getAsJsonObject();
+            JsonElement op = object.get("op");
+            if (op == null || !op.isJsonPrimitive()) {
+                return null;
+            }
+
+            List<String> args = new ArrayList<>();
+            JsonElement rawArgs = object.get("args");
+            if (rawArgs != null && rawArgs.isJsonArray()) {
+                for (JsonElement arg : rawArgs.getAsJsonArray()) {
+                    args.add(arg.isJsonPrimitive() ? arg.getAsString() : arg.toString());
+                }
+            }
+            return new BridgeCommand(op.getAsString(), args);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return null;
+        }
+    }
+}
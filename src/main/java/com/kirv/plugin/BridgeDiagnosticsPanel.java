@@ -0,0 +1,85 @@
+package com.kirv.plugin;
+
+import com.google.gson.GsonBuilder;
+import com.intellij.openapi.ide.CopyPasteManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.JBTable;
+import com.intellij.util.ui.JBUI;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.awt.datatransfer.StringSelection;
+
+/**
+ * "Diagnostics" tab of the agent tool window: live per-opcode bridge metrics from {@link BridgeMetrics}.
+ * Refreshes once a second while visible.
+ */
+final class BridgeDiagnosticsPanel extends JPanel {
+    private static final int REFRESH_MS = 1000;
+    private static final String[] COLUMNS = {"Opcode", "Calls", "Errors", "Mean ms", "p50 ms", "p90 ms", "p99 ms", "Max ms"};
+
+    private final BridgeMetrics metrics;
+    private final DefaultTableModel model = new DefaultTableModel(COLUMNS, 0) {
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+    };
+    private final JLabel queueLabel = new JLabel();
+    private final Timer timer = new Timer(REFRESH_MS, e -> refresh());
+
+    BridgeDiagnosticsPanel(Project project) {
+        this.metrics = BridgeMetrics.getInstance(project);
+        setLayout(new BorderLayout());
+
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JButton btnCopy = new JButton("Copy JSON");
+        btnCopy.addActionListener(e -> CopyPasteManager.getInstance().setContents(
+                new StringSelection(new GsonBuilder().setPrettyPrinting().create().toJson(metrics.toJson()))));
+        JButton btnReset = new JButton("Reset");
+        btnReset.addActionListener(e -> {
+            metrics.reset();
+            refresh();
+        });
+        controls.add(btnCopy);
+        controls.add(btnReset);
+        queueLabel.setBorder(JBUI.Borders.emptyLeft(10));
+        controls.add(queueLabel);
+
+        add(controls, BorderLayout.NORTH);
+        add(new JBScrollPane(new JBTable(model)), BorderLayout.CENTER);
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        refresh();
+        timer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        timer.stop();
+        super.removeNotify();
+    }
+
+    private void refresh() {
+        if (!isShowing()) {
+            return;
+        }
+        model.setRowCount(0);
+        for (BridgeMetrics.Snapshot op : metrics.snapshot()) {
+            model.addRow(new Object[]{
+                    op.opCode, op.count, op.errors,
+                    format(op.meanMs), format(op.p50Ms), format(op.p90Ms), format(op.p99Ms), format(op.maxMs)
+            });
+        }
+        queueLabel.setText("Queue depth: " + metrics.queueDepth());
+    }
+
+    private static String format(double millis) {
+        return String.format("%.2f", millis);
+    }
+}
@@ -0,0 +1,209 @@
+package com.kirv.plugin;
+
+import com.google.gson.JsonObject;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-opcode counters and latency histograms of the JS bridge.
+ * <p>
+ * Recording a call does not allocate once its opcode has been seen: the stats object is looked up
+ * in a concurrent map and updated with adders and an atomic array. Latencies go into a log-linear
+ * histogram in microseconds (8 sub-buckets per power of two, so percentiles are within ~12%).
+ * Callers pass only known opcodes and {@link #UNKNOWN_OP} for anything else, so a page sending
+ * made-up opcodes cannot grow the map.
+ */
+@Service(Service.Level.PROJECT)
+public final class BridgeMetrics {
+    static final String UNKNOWN_OP = "unknown";
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // 2^40 µs is about 12 days, far beyond any bridge call
+    private static final int MAX_EXPONENT = 40;
+    // values below SUB_BUCKETS get one bucket each, every power of two above that gets SUB_BUCKETS
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final Map<String, OpStats> ops = new ConcurrentHashMap<>();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final LongAccumulator maxQueueDepth = new LongAccumulator(Math::max, 0);
+    private volatile long sinceMillis = System.currentTimeMillis();
+
+    BridgeMetrics() {
+    }
+
+    /**
+     * Records one finished call of {@code opCode} that started at {@code startNanos} ({@link System#nanoTime()}).
+     */
+    void record(String opCode, long startNanos, boolean failed) {
+        OpStats stats = ops.get(opCode);
+        if (stats == null) {
+            stats = ops.computeIfAbsent(opCode, op -> new OpStats());
+        }
+        stats.record((System.nanoTime() - startNanos) / 1000, failed);
+    }
+
+    /**
+     * A call was handed to the bridge executor; it counts towards the queue depth until it finishes.
+     */
+    void enqueued() {
+        maxQueueDepth.accumulate(queueDepth.incrementAndGet());
+    }
+
+    /**
+     * A queued call finished, was canceled or was rejected.
+     */
+    void dequeued() {
+        queueDepth.decrementAndGet();
+    }
+
+    int queueDepth() {
+        return queueDepth.get();
+    }
+
+    void reset() {
+        ops.clear();
+        maxQueueDepth.reset();
+        sinceMillis = System.currentTimeMillis();
+    }
+
+    List<Snapshot> snapshot() {
+        List<Snapshot> result = new ArrayList<>();
+        new TreeMap<>(ops).forEach((op, stats) -> result.add(stats.snapshot(op)));
+        return result;
+    }
+
+    /**
+     * {@code {"since", "queueDepth", "maxQueueDepth", "ops": {opcode: {"count", "errors", "meanMs", "p50Ms", "p90Ms", "p99Ms", "maxMs"}}}}
+     */
+    JsonObject toJson() {
+        JsonObject opsJson = new JsonObject();
+        for (Snapshot snapshot : snapshot()) {
+            JsonObject op = new JsonObject();
+            op.addProperty("count", snapshot.count);
+            op.addProperty("errors", snapshot.errors);
+            op.addProperty("meanMs", snapshot.meanMs);
+            op.addProperty("p50Ms", snapshot.p50Ms);
+            op.addProperty("p90Ms", snapshot.p90Ms);
+            op.addProperty("p99Ms", snapshot.p99Ms);
+            op.addProperty("maxMs", snapshot.maxMs);
+            opsJson.add(snapshot.opCode, op);
+        }
+
+        JsonObject result = new JsonObject();
+        result.addProperty("since", sinceMillis);
+        result.addProperty("queueDepth", queueDepth.get());
+        result.addProperty("maxQueueDepth", maxQueueDepth.get());
+        result.add("ops", opsJson);
+        return result;
+    }
+
+    static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) Math.max(0, micros);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Largest value, in microseconds, that falls into {@code bucket}.
+     */
+    static long bucketUpperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (1L << exponent) + (subBucket + 1) * width - 1;
+    }
+
+    static BridgeMetrics getInstance(Project project) {
+        return project.getService(BridgeMetrics.class);
+    }
+
+    private static final class OpStats {
+        final LongAdder count = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder totalMicros = new LongAdder();
+        final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+        final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+        void record(long micros, boolean failed) {
+            count.increment();
+            if (failed) {
+                errors.increment();
+            }
+            totalMicros.add(micros);
+            maxMicros.accumulate(micros);
+            histogram.incrementAndGet(bucketOf(micros));
+        }
+
+        Snapshot snapshot(String opCode) {
+            long[] buckets = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = histogram.get(i);
+                total += buckets[i];
+            }
+            long calls = count.sum();
+            return new Snapshot(opCode, calls, errors.sum(),
+                    calls == 0 ? 0 : totalMicros.sum() / (double) calls / 1000,
+                    percentileMs(buckets, total, 0.50),
+                    percentileMs(buckets, total, 0.90),
+                    percentileMs(buckets, total, 0.99),
+                    maxMicros.get() / 1000.0);
+        }
+
+        private static double percentileMs(long[] buckets, long total, double percentile) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(total * percentile);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return bucketUpperBound(i) / 1000.0;
+                }
+            }
+            return bucketUpperBound(buckets.length - 1) / 1000.0;
+        }
+    }
+
+    static final class Snapshot {
+        final String opCode;
+        final long count;
+        final long errors;
+        final double meanMs;
+        final double p50Ms;
+        final double p90Ms;
+        final double p99Ms;
+        final double maxMs;
+
+        Snapshot(String opCode, long count, long errors, double meanMs, double p50Ms, double p90Ms, double p99Ms, double maxMs) {
+            this.opCode = opCode;
+            this.count = count;
+            this.errors = errors;
+            this.meanMs = meanMs;
+            this.p50Ms = p50Ms;
+            this.p90Ms = p90Ms;
+            this.p99Ms = p99Ms;
+            this.maxMs = maxMs;
+        }
+    }
+}
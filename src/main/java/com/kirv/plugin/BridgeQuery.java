@@ -0,0 +1,97 @@
+package com.kirv.plugin;
+
+import org.cef.callback.CefQueryCallback;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One in-flight {@code cefQuery} handled off the CEF thread.
+ * <p>
+ * Non-persistent queries are answered exactly once with {@link #success(String)} or
+ * {@link #failure(int, String)}. Persistent queries may additionally stream frames with
+ * {@link #emit(String)} until they are completed or canceled by the UI.
+ */
+final class BridgeQuery {
+    private final long queryId;
+    private final boolean persistent;
+    private final CefQueryCallback callback;
+    private final AtomicBoolean completed = new AtomicBoolean();
+    private volatile boolean canceled;
+    private volatile Future<?> future;
+
+    BridgeQuery(long queryId, boolean persistent, CefQueryCallback callback) {
+        this.queryId = queryId;
+        this.persistent = persistent;
+        this.callback = callback;
+    }
+
+    long queryId() {
+        return queryId;
+    }
+
+    boolean isPersistent() {
+        return persistent;
+    }
+
+    boolean isCanceled() {
+        return canceled;
+    }
+
+    void checkCanceled() {
+        if (canceled) {
+            throw new QueryCanceledException();
+        }
+    }
+
+    void setFuture(Future<?> future) {
+        this.future = future;
+        if (canceled) {
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * Marks the query canceled and drops it if it has not started. A running command is not
+     * interrupted, since that closes NIO channels under VFS reads; it stops at its next
+     * {@link #checkCanceled()}.
+     */
+    void cancel() {
+        canceled = true;
+        completed.set(true);
+        Future<?> f = future;
+        if (f != null) {
+            f.cancel(false);
+        }
+    }
+
+    /**
+     * Sends an intermediate frame of a persistent query. Ignored for completed or canceled queries.
+     */
+    void emit(String frame) {
+        if (!persistent) {
+            throw new IllegalStateException("emit() requires a persistent query");
+        }
+        if (!completed.get()) {
+            callback.success(frame);
+        }
+    }
+
+    void success(String response) {
+        if (completed.compareAndSet(false, true)) {
+            callback.success(response);
+        }
+    }
+
+    void failure(int errorCode, String message) {
+        if (completed.compareAndSet(false, true)) {
+            callback.failure(errorCode, message);
+        }
+    }
+
+    static final class QueryCanceledException extends RuntimeException {
+        QueryCanceledException() {
+            super("query_canceled", null, false, false);
+        }
+    }
+}
@@ -4,59 +4,190 @@ import java.awt.*;
 import java.io.*;
 import javax.swing.*;
 
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.ui.JBColor;
 import org.jetbrains.annotations.NotNull;
 
 import java.net.URLEncoder;
 import java.util.ArrayList;
+import java.util.function.Supplier;
 
 final class Browser extends JPanel {
     private BrowserView webView;
+    private final Supplier<BrowserView> webViewFactory;
     private ConfigService configService;
     private final Project project;
     private JButton btnRefresh;
     private JButton btnOpenConfigFile;
     private JLabel statusLabel;
     private JProgressBar progressBar;
-    private Boolean isStartEvent = false;
+    private JPanel centerPanel;
+    private JLabel suspendedLabel;
+    private ConnectionSupervisor supervisor;
+    // whether the current page was loaded while the server was up, so a reconnect does not need a reload
+    private boolean appLoaded;
+    private int connectGeneration;
 
     private int versionTag = 2;
 
-    Browser(BrowserView webView, @NotNull Project project) {
-        this.webView = webView;
+    Browser(Supplier<BrowserView> webViewFactory, @NotNull Project project) {
+        this(webViewFactory, project, new ConfigService());
+    }
+
+    /**
+     * @param configService where the agent server's port is read from on every (re)connect
+     */
+    Browser(Supplier<BrowserView> webViewFactory, @NotNull Project project, @NotNull ConfigService configService) {
+        this.webViewFactory = webViewFactory;
+        this.webView = webViewFactory.get();
         this.project = project;
-        this.configService = new ConfigService();
+        this.configService = configService;
         initView();
         initEvent();
-        loadApp();
-        initBrowserEvent();
-        isStartEvent = true;
+        attachWebView();
     }
 
     public void onHide() {
-        webView.onHide();
-        isStartEvent = false;
+        if (webView != null) {
+            webView.onHide();
+        }
     }
 
     public void onShow() {
-        if (!isStartEvent) {
-            initBrowserEvent();
+        if (webView == null) {
+            resume();
+            return;
         }
-
         webView.onShow();
     }
 
     public void onFilesDrag(ArrayList<File> files) {
+        if (webView == null) {
+            // events are held by the push channel until the reloaded page is ready
+            resume();
+        }
         webView.onFilesDrag(files, project.getBasePath());
     }
 
-    private void loadApp() {
+    boolean isSuspended() {
+        return webView == null;
+    }
+
+    /**
+     * Releases the renderer of a hidden tool window. The panel, its status and the server-side chat
+     * survive; the page gets an {@code onPluginSuspend} event first so it can persist local state.
+     */
+    void suspend() {
+        if (webView == null) {
+            return;
+        }
+        BrowserView view = webView;
+        webView = null;
+        stopSupervisor();
+
+        ChangeFeed.getInstance(project).removeSink(view.getPushChannel());
+        ProblemsFeed.getInstance(project).removeSink(view.getPushChannel());
+        view.getPushChannel().push("onPluginSuspend", null);
+        view.getPushChannel().flush();
+
+        centerPanel.remove(view.getBrowser());
+        centerPanel.add(suspendedLabel, BorderLayout.CENTER);
+        centerPanel.revalidate();
+        centerPanel.repaint();
+        view.dispose();
+    }
+
+    /**
+     * Recreates the renderer after {@link #suspend()} and reloads the app.
+     */
+    void resume() {
+        if (webView != null) {
+            return;
+        }
+        webView = webViewFactory.get();
+        centerPanel.remove(suspendedLabel);
+        attachWebView();
+        centerPanel.revalidate();
+        centerPanel.repaint();
+        webView.onShow();
+    }
+
+    private void attachWebView() {
+        centerPanel.add(webView.getBrowser(), BorderLayout.CENTER);
+        webView.onProgressChange(e -> swingInvokeLater(() -> {
+            progressBar.setVisible(e != 1.0 && e != 0);
+            progressBar.setValue((int) (e * 100));
+        }));
+        connect();
+        initBrowserEvent();
+        ChangeFeed.getInstance(project).addSink(webView.getPushChannel());
+        ProblemsFeed.getInstance(project).addSink(webView.getPushChannel());
+    }
+
+    /**
+     * (Re)reads the config and waits for the agent server on its port: the app is loaded as soon as
+     * the server accepts connections instead of showing a failed page.
+     */
+    private void connect() {
         configService.loadConfigFile();
-        webView.load("about:blank");
+        AssetCache.getInstance().setAgentPort(configService.getPort());
+        stopSupervisor();
+        appLoaded = false;
+        statusLabel.setText("Connection...");
+        statusLabel.setForeground(UIManager.getColor("Label.foreground"));
+
+        int generation = ++connectGeneration;
+        supervisor = new ConnectionSupervisor(configService.getPort(), new ConnectionSupervisor.Listener() {
+            @Override
+            public void onConnected() {
+                onConnectionChange(generation, true);
+            }
 
+            @Override
+            public void onDisconnected() {
+                onConnectionChange(generation, false);
+            }
+        });
+        supervisor.start();
+    }
+
+    private void onConnectionChange(int generation, boolean connected) {
+        ApplicationManager.getApplication().invokeLater(() -> {
+            // ignore a stopped supervisor's late news
+            if (webView == null || generation != connectGeneration) {
+                return;
+            }
+            if (!connected) {
+                // same look as a "disconnected" jide_status from the page
+                statusLabel.setText("Disconnected: agent server is not running on port " + configService.getPort());
+                statusLabel.setForeground(JBColor.RED);
+            } else if (!appLoaded) {
+                statusLabel.setForeground(UIManager.getColor("Label.foreground"));
+                loadApp();
+                appLoaded = true;
+            } else {
+                // the page is still alive: let it resync with the server instead of reloading it
+                statusLabel.setText("Connected");
+                statusLabel.setForeground(UIManager.getColor("Label.foreground"));
+                webView.getPushChannel().push("onServerReconnected", null);
+            }
+        }, ModalityState.any(), project.getDisposed());
+    }
 
+    private void stopSupervisor() {
+        connectGeneration++;
+        if (supervisor != null) {
+            supervisor.stop();
+            supervisor = null;
+        }
+    }
+
+    private void loadApp() {
+        // pooled browsers already sit on about:blank, so go straight to the app
         try {
             String projectPath = URLEncoder.encode(project.getBasePath(), "UTF-8").replaceAll("\\+", "%20");
             webView.load("http://localhost:" + configService.getPort() + "/?project=" + projectPath + "&versionTag=" + versionTag);
@@ -119,22 +250,25 @@ final class Browser extends JPanel {
         progressBar.setVisible(false);
         progressBar.setPreferredSize(new Dimension(0, 5));
         panel.add(progressBar, BorderLayout.NORTH);
-        panel.add(webView.getBrowser(), BorderLayout.CENTER);
+        suspendedLabel = new JLabel("Suspended while hidden");
+        suspendedLabel.setHorizontalAlignment(SwingConstants.CENTER);
+        centerPanel = panel;
         return panel;
     }
 
     private void initEvent() {
-        btnRefresh.addActionListener(e -> loadApp());
+        btnRefresh.addActionListener(e -> {
+            if (webView == null) {
+                resume();
+            } else {
+                connect();
+            }
+        });
         btnOpenConfigFile.addActionListener(e -> openConfigFile());
-
-        webView.onProgressChange(e -> swingInvokeLater(() -> {
-            progressBar.setVisible(e != 1.0 && e != 0);
-            progressBar.setValue((int) (e * 100));
-        }));
     }
 
     private void initBrowserEvent() {
-        webView.addJSHandler(new JsTransport(project, statusLabel));
+        webView.addJSHandler(new JsTransport(project, statusLabel, webView.getPushChannel(), configService::getPort));
     }
 
     private void openConfigFile() {
@@ -0,0 +1,233 @@
+package com.kirv.plugin;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.ui.jcef.JBCefApp;
+import com.intellij.ui.jcef.JBCefBrowser;
+import com.intellij.ui.jcef.JBCefClient;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.cef.browser.CefBrowser;
+import org.cef.browser.CefFrame;
+import org.cef.browser.CefMessageRouter;
+import org.cef.callback.CefQueryCallback;
+import org.cef.handler.CefMessageRouterHandler;
+import org.cef.handler.CefMessageRouterHandlerAdapter;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Application-wide pool of prewarmed JCEF browsers sharing one {@link JBCefClient}.
+ * <p>
+ * Spinning up a renderer is the slow part of opening the agent window, so {@code BROWSER_POOL_SIZE}
+ * browsers are kept ready on {@code about:blank}; a project checks one out and only has to navigate it
+ * to the app. Released browsers go back to the pool, and pooled browsers left unused for
+ * {@code BROWSER_POOL_IDLE_SECONDS} are disposed. All methods must be called on the EDT.
+ * <p>
+ * CEF cancels a query that the first router on a client does not handle, so browsers on the shared
+ * client cannot each add their own {@link CefMessageRouter}. The pool owns the single router and
+ * dispatches {@code cefQuery} calls to the handler registered for the calling browser.
+ */
+@Service(Service.Level.APP)
+public final class BrowserPool implements Disposable {
+    private static final Logger LOG = Logger.getInstance(BrowserPool.class);
+    private static final String BLANK_URL = "about:blank";
+    private static final AtomicInteger LIVE_ROUTERS = new AtomicInteger();
+
+    private final ArrayDeque<Pooled> idle = new ArrayDeque<>();
+    private final Map<CefBrowser, CefMessageRouterHandler> queryHandlers = new ConcurrentHashMap<>();
+    private JBCefClient client;
+    private CefMessageRouter router;
+    private ScheduledFuture<?> evictionTask;
+    private int poolSize;
+    private long idleMillis;
+    private boolean disposed;
+
+    BrowserPool() {
+        ConfigService configService = new ConfigService();
+        configService.loadConfigFile();
+        poolSize = configService.getBrowserPoolSize();
+        idleMillis = TimeUnit.SECONDS.toMillis(configService.getBrowserPoolIdleSeconds());
+    }
+
+    /**
+     * Returns a browser showing {@code about:blank}, taken from the pool when one is ready.
+     * The pool is refilled in the background.
+     */
+    JBCefBrowser checkout() {
+        Pooled pooled = idle.pollFirst();
+        JBCefBrowser browser = pooled != null ? pooled.browser : create();
+        scheduleRefill();
+        return browser;
+    }
+
+    /**
+     * Takes a browser back. The caller must already have removed its own handlers and routers
+     * registered for this browser on the shared client.
+     */
+    void release(JBCefBrowser browser) {
+        if (disposed || browser.isDisposed()) {
+            return;
+        }
+        if (idle.size() >= poolSize) {
+            dispose(browser);
+            return;
+        }
+        browser.getCefBrowser().stopLoad();
+        browser.loadURL(BLANK_URL);
+        idle.addLast(new Pooled(browser));
+        scheduleEviction();
+    }
+
+    /**
+     * Routes {@code cefQuery} calls made by {@code browser} to {@code handler}, replacing any previous one.
+     */
+    void setQueryHandler(CefBrowser browser, CefMessageRouterHandler handler) {
+        queryHandlers.put(browser, handler);
+    }
+
+    void removeQueryHandler(CefBrowser browser) {
+        queryHandlers.remove(browser);
+    }
+
+    /**
+     * Number of message routers alive in the IDE; stays at one however often tool windows are toggled.
+     */
+    static int liveRouterCount() {
+        return LIVE_ROUTERS.get();
+    }
+
+    /**
+     * Number of browsers with a registered query handler, i.e. live {@link JcefBrowser}s.
+     */
+    int queryHandlerCount() {
+        return queryHandlers.size();
+    }
+
+    private JBCefClient client() {
+        if (client == null || client.isDisposed()) {
+            client = JBCefApp.getInstance().createClient();
+            router = CefMessageRouter.create();
+            LIVE_ROUTERS.incrementAndGet();
+            router.addHandler(new QueryDispatcher(), true);
+            client.getCefClient().addMessageRouter(router);
+        }
+        return client;
+    }
+
+    private JBCefBrowser create() {
+        return JBCefBrowser.createBuilder()
+                .setClient(client())
+                .setUrl(BLANK_URL)
+                .setCreateImmediately(true)
+                .build();
+    }
+
+    private void scheduleRefill() {
+        if (poolSize == 0) {
+            return;
+        }
+        ApplicationManager.getApplication().invokeLater(() -> {
+            if (disposed) {
+                return;
+            }
+            while (idle.size() < poolSize) {
+                idle.addLast(new Pooled(create()));
+            }
+            scheduleEviction();
+        }, ModalityState.nonModal());
+    }
+
+    private void scheduleEviction() {
+        if (idleMillis <= 0 || (evictionTask != null && !evictionTask.isDone())) {
+            return;
+        }
+        evictionTask = AppExecutorUtil.getAppScheduledExecutorService().schedule(
+                () -> ApplicationManager.getApplication().invokeLater(this::evictIdle, ModalityState.any()),
+                idleMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void evictIdle() {
+        evictionTask = null;
+        long now = System.currentTimeMillis();
+        Iterator<Pooled> it = idle.iterator();
+        while (it.hasNext()) {
+            Pooled pooled = it.next();
+            if (now - pooled.idleSince >= idleMillis) {
+                it.remove();
+                dispose(pooled.browser);
+            }
+        }
+        if (!idle.isEmpty()) {
+            scheduleEviction();
+        }
+    }
+
+    private static void dispose(JBCefBrowser browser) {
+        try {
+            browser.getCefBrowser().close(true);
+            Disposer.dispose(browser);
+        } catch (RuntimeException e) {
+            LOG.warn("Failed to dispose pooled browser", e);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        disposed = true;
+        if (evictionTask != null) {
+            evictionTask.cancel(false);
+        }
+        for (Pooled pooled : idle) {
+            dispose(pooled.browser);
+        }
+        idle.clear();
+        queryHandlers.clear();
+
+        if (client != null && !client.isDisposed()) {
+            client.getCefClient().removeMessageRouter(router);
+            router.dispose();
+            LIVE_ROUTERS.decrementAndGet();
+            Disposer.dispose(client);
+        }
+    }
+
+    static BrowserPool getInstance() {
+        return ApplicationManager.getApplication().getService(BrowserPool.class);
+    }
+
+    private final class QueryDispatcher extends CefMessageRouterHandlerAdapter {
+        @Override
+        public boolean onQuery(CefBrowser browser, CefFrame frame, long queryId, String request,
+                               boolean persistent, CefQueryCallback callback) {
+            CefMessageRouterHandler handler = queryHandlers.get(browser);
+            return handler != null && handler.onQuery(browser, frame, queryId, request, persistent, callback);
+        }
+
+        @Override
+        public void onQueryCanceled(CefBrowser browser, CefFrame frame, long queryId) {
+            CefMessageRouterHandler handler = queryHandlers.get(browser);
+            if (handler != null) {
+                handler.onQueryCanceled(browser, frame, queryId);
+            }
+        }
+    }
+
+    private static final class Pooled {
+        final JBCefBrowser browser;
+        final long idleSince = System.currentTimeMillis();
+
+        Pooled(JBCefBrowser browser) {
+            this.browser = browser;
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.kirv.plugin;
 
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.intellij.util.ui.JBUI;
 import com.intellij.ide.dnd.DnDEvent;
 import com.intellij.ide.dnd.DnDSupport;
@@ -15,38 +18,119 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import com.intellij.util.ReflectionUtil;
 
 public final class BrowserToolWindowPanel extends JPanel {
     private static final Logger LOG = Logger.getInstance(BrowserToolWindowPanel.class);
     private final Project project;
+    private final boolean jcefSupported;
     private Browser browser;
+    private ScheduledFuture<?> pendingSuspend;
+    private boolean shown;
+    // read once on a pooled thread; not known yet (-1) only in the first moments after creation
+    private volatile int suspendAfterSeconds = -1;
 
     public BrowserToolWindowPanel(Project project) {
         this.project = project;
+        this.jcefSupported = isSupportedJCEF();
         setLayout(new java.awt.BorderLayout());
-        add(createBrowserComponent(), java.awt.BorderLayout.CENTER);
-        panelEvents();
+        if (!jcefSupported) {
+            add(unsupportedLabel(), java.awt.BorderLayout.CENTER);
+        }
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            ConfigService configService = new ConfigService();
+            configService.loadConfigFile();
+            suspendAfterSeconds = configService.getBrowserSuspendAfterSeconds();
+        });
     }
 
     public void destroy() {
+        // stateChanged fires for every tool window while this one stays hidden: only act on a real hide
+        if (!shown) {
+            return;
+        }
+        shown = false;
         if (browser != null) {
             browser.onHide();
+            scheduleSuspend();
         }
     }
 
     public void init() {
-        if (browser != null) {
+        shown = true;
+        cancelSuspend();
+        if (ensureBrowser()) {
             browser.onShow();
         }
     }
 
+    /**
+     * Hands the browser back to the shared pool when the tool window goes away.
+     */
+    public void release() {
+        cancelSuspend();
+        if (browser != null) {
+            browser.suspend();
+        }
+    }
+
     public void addFilesToContext(ArrayList<File> files) {
-        if (browser == null || files == null || files.isEmpty()) {
+        if (files == null || files.isEmpty() || !ensureBrowser()) {
             return;
         }
-        browser.onFilesDrag(files);
+        // even telling files from directories touches the disk, so leave it to the background task
+        ContextFilesCollector.collect(project, files, expanded -> {
+            if (browser != null && !expanded.isEmpty()) {
+                browser.onFilesDrag(expanded);
+            }
+        });
+    }
+
+    /**
+     * Creates the browser on first use, so projects that never show the agent window never start a renderer.
+     */
+    private boolean ensureBrowser() {
+        if (browser != null) {
+            return true;
+        }
+        if (!jcefSupported) {
+            return false;
+        }
+
+        JComponent component = createBrowserComponent();
+        add(component, java.awt.BorderLayout.CENTER);
+        revalidate();
+        repaint();
+        panelEvents();
+        return browser != null;
+    }
+
+    private void scheduleSuspend() {
+        if (pendingSuspend != null && !pendingSuspend.isDone()) {
+            return;
+        }
+        int delay = suspendAfterSeconds;
+        if (delay <= 0) {
+            return;
+        }
+
+        pendingSuspend = AppExecutorUtil.getAppScheduledExecutorService().schedule(
+                () -> ApplicationManager.getApplication().invokeLater(() -> {
+                    if (browser != null && !isShowing()) {
+                        browser.suspend();
+                    }
+                }, ModalityState.any(), project.getDisposed()),
+                delay, TimeUnit.SECONDS);
+    }
+
+    private void cancelSuspend() {
+        if (pendingSuspend != null) {
+            pendingSuspend.cancel(false);
+            pendingSuspend = null;
+        }
     }
 
     private boolean isSupportedJCEF() {
@@ -62,15 +146,16 @@ public final class BrowserToolWindowPanel extends JPanel {
 
     private JComponent createBrowserComponent() {
         try {
-            if (isSupportedJCEF()) {
-                BrowserView view = new JcefBrowser();
-                browser = new Browser(view, project);
-                return browser;
-            }
+            browser = new Browser(JcefBrowser::new, project);
+            return browser;
         } catch (Exception e) {
             LOG.error(e);
         }
 
+        return unsupportedLabel();
+    }
+
+    private JLabel unsupportedLabel() {
         JLabel label = new JLabel("JCEF is not supported in running IDE");
         label.setHorizontalAlignment(SwingConstants.CENTER);
         label.setVerticalAlignment(SwingConstants.TOP);
@@ -15,6 +15,8 @@ public interface BrowserView {
 
     public void addJSHandler(JsTransport instance);
 
+    PushChannel getPushChannel();
+
     void load(String url);
 
     void onUrlChange(Consumer<String> consumer);
@@ -39,6 +41,8 @@ public interface BrowserView {
 
     void onFilesDrag(ArrayList<File> files, String basePath);
 
+    void dispose();
+
     Type type();
 
     enum Type {
@@ -32,13 +32,16 @@ public class BrowserWindowFactory implements ToolWindowFactory {
         synchronized (PANELS) {
             PANELS.put(project, panel);
         }
-        Content content = contentFactory.createContent(panel, "", false);
+        Content content = contentFactory.createContent(panel, "Agent", false);
         toolWindow.getContentManager().addContent(content);
+        toolWindow.getContentManager().addContent(
+                contentFactory.createContent(new BridgeDiagnosticsPanel(project), "Diagnostics", false));
 
         com.intellij.openapi.util.Disposer.register(toolWindow.getDisposable(), () -> {
             synchronized (PANELS) {
                 PANELS.remove(project);
             }
+            panel.release();
         });
 
         MessageBusConnection connection = project.getMessageBus().connect(toolWindow.getDisposable());
@@ -54,5 +57,10 @@ public class BrowserWindowFactory implements ToolWindowFactory {
                 }
             }
         });
+
+        // content is usually created while the window is being shown, and no state change follows
+        if (toolWindow.isVisible()) {
+            panel.init();
+        }
     }
 }
\ No newline at end of file
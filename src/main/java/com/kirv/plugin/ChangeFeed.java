@@ -0,0 +1,282 @@
+package com.kirv.plugin;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.EditorFactory;
+import com.intellij.openapi.editor.event.DocumentEvent;
+import com.intellij.openapi.editor.event.DocumentListener;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileCopyEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileCreateEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes coalesced project change deltas to the web UI so the agent server can update its
+ * caches incrementally instead of rescanning.
+ * <p>
+ * VFS events and in-memory document edits are deduplicated per path within a debounce window
+ * ({@code CHANGES_BATCH_WINDOW_MS}) and pushed as {@code onProjectChanges} events of at most
+ * {@code CHANGES_MAX_BATCH} entries: {@code {"seq": n, "changes": [{"kind", "path", "oldPath"?, "stamp"}]}}.
+ */
+@Service(Service.Level.PROJECT)
+public final class ChangeFeed implements Disposable {
+    static final String EVENT = "onProjectChanges";
+
+    private final Project project;
+    private final int batchWindowMs;
+    private final int maxBatch;
+    private final List<PushChannel> sinks = new CopyOnWriteArrayList<>();
+    private final LinkedHashMap<String, Change> pending = new LinkedHashMap<>();
+    private boolean flushScheduled;
+    private long sequence;
+
+    ChangeFeed(Project project) {
+        this.project = project;
+        ConfigService configService = new ConfigService();
+        configService.loadConfigFile();
+        batchWindowMs = configService.getChangesBatchWindowMs();
+        maxBatch = configService.getChangesMaxBatch();
+
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void after(@NotNull List<? extends @NotNull VFileEvent> events) {
+                onVfsEvents(events);
+            }
+        });
+        EditorFactory.getInstance().getEventMulticaster().addDocumentListener(new DocumentListener() {
+            @Override
+            public void documentChanged(@NotNull DocumentEvent event) {
+                onDocumentChanged(event.getDocument());
+            }
+        }, this);
+    }
+
+    void addSink(PushChannel sink) {
+        if (!sinks.contains(sink)) {
+            sinks.add(sink);
+        }
+    }
+
+    void removeSink(PushChannel sink) {
+        sinks.remove(sink);
+    }
+
+    private void onVfsEvents(List<? extends VFileEvent> events) {
+        if (sinks.isEmpty()) {
+            return;
+        }
+        for (VFileEvent event : events) {
+            if (event instanceof VFileCreateEvent) {
+                record(Kind.CREATED, event.getPath(), null, stampOf(event.getFile()));
+            } else if (event instanceof VFileCopyEvent copyEvent) {
+                // getFile() is the original; the copy is a new file at getPath()
+                record(Kind.CREATED, copyEvent.getPath(), null, stampOf(copyEvent.findCreatedFile()));
+            } else if (event instanceof VFileDeleteEvent) {
+                record(Kind.DELETED, event.getPath(), null, -1);
+            } else if (event instanceof VFileContentChangeEvent) {
+                record(Kind.CHANGED, event.getPath(), null, stampOf(event.getFile()));
+            } else if (event instanceof VFileMoveEvent moveEvent) {
+                record(Kind.MOVED, moveEvent.getNewPath(), moveEvent.getOldPath(), stampOf(event.getFile()));
+            } else if (event instanceof VFilePropertyChangeEvent propertyEvent && propertyEvent.isRename()) {
+                record(Kind.MOVED, propertyEvent.getNewPath(), propertyEvent.getOldPath(), stampOf(event.getFile()));
+            }
+        }
+    }
+
+    private void onDocumentChanged(Document document) {
+        if (sinks.isEmpty()) {
+            return;
+        }
+        VirtualFile file = FileDocumentManager.getInstance().getFile(document);
+        if (file != null && file.isInLocalFileSystem()) {
+            record(Kind.CHANGED, file.getPath(), null, document.getModificationStamp());
+        }
+    }
+
+    private void record(Kind kind, String path, String oldPath, long stamp) {
+        String relative = toRelativePath(path);
+        String relativeOld = oldPath == null ? null : toRelativePath(oldPath);
+        if (relative == null) {
+            if (relativeOld != null) {
+                // moved out of the project
+                record(Kind.DELETED, oldPath, null, -1);
+            }
+            return;
+        }
+        if (kind == Kind.MOVED && relativeOld == null) {
+            // moved into the project
+            kind = Kind.CREATED;
+        }
+
+        boolean flushNow;
+        synchronized (pending) {
+            if (relativeOld != null) {
+                Change moved = pending.remove(relativeOld);
+                if (moved != null && moved.kind == Kind.CREATED) {
+                    // created and moved within one window: the server has never seen the old path
+                    kind = Kind.CREATED;
+                    relativeOld = null;
+                } else if (moved != null && moved.kind == Kind.MOVED && moved.oldPath != null) {
+                    // moved twice within one window: the server only knows where it started
+                    relativeOld = moved.oldPath;
+                    if (relativeOld.equals(relative)) {
+                        kind = Kind.CHANGED;
+                        relativeOld = null;
+                    }
+                }
+            }
+
+            Change previous = pending.get(relative);
+            if (kind == Kind.DELETED && previous != null && previous.kind == Kind.MOVED && previous.oldPath != null) {
+                // moved and deleted within one window: the server only knows the old path, which
+                // may have been taken by a new file since
+                pending.remove(relative);
+                Change reused = pending.get(previous.oldPath);
+                pending.put(previous.oldPath, reused == null
+                        ? new Change(Kind.DELETED, previous.oldPath, null, -1)
+                        : new Change(Kind.CHANGED, previous.oldPath, null, reused.stamp));
+            } else {
+                Kind merged = previous == null ? kind : merge(previous.kind, kind);
+                if (merged == null) {
+                    pending.remove(relative);
+                } else {
+                    String mergedOld = relativeOld != null ? relativeOld : previous == null ? null : previous.oldPath;
+                    pending.put(relative, new Change(merged, relative, mergedOld, stamp));
+                }
+            }
+
+            flushNow = pending.size() >= maxBatch;
+            if (!flushNow && !flushScheduled && !pending.isEmpty()) {
+                flushScheduled = true;
+                AppExecutorUtil.getAppScheduledExecutorService().schedule(this::flush, batchWindowMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (flushNow) {
+            flush();
+        }
+    }
+
+    /**
+     * Combines two changes of the same path inside one window; {@code null} means they cancel out.
+     */
+    private static Kind merge(Kind previous, Kind next) {
+        if (previous == Kind.CREATED) {
+            return next == Kind.DELETED ? null : Kind.CREATED;
+        }
+        if (previous == Kind.DELETED && next != Kind.DELETED) {
+            // a file moved onto a deleted path still has to vacate its old one
+            return next == Kind.MOVED ? Kind.MOVED : Kind.CHANGED;
+        }
+        if (previous == Kind.MOVED && next == Kind.CHANGED) {
+            return Kind.MOVED;
+        }
+        return next;
+    }
+
+    private void flush() {
+        List<Change> changes;
+        synchronized (pending) {
+            flushScheduled = false;
+            changes = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+        if (changes.isEmpty() || project.isDisposed()) {
+            return;
+        }
+
+        for (int start = 0; start < changes.size(); start += maxBatch) {
+            JsonArray batch = new JsonArray();
+            for (Change change : changes.subList(start, Math.min(changes.size(), start + maxBatch))) {
+                batch.add(change.toJson());
+            }
+            JsonObject data = new JsonObject();
+            synchronized (pending) {
+                data.addProperty("seq", ++sequence);
+            }
+            data.add("changes", batch);
+
+            for (PushChannel sink : sinks) {
+                sink.push(EVENT, data);
+            }
+        }
+    }
+
+    private String toRelativePath(String path) {
+        String basePath = project.getBasePath();
+        if (basePath == null || !path.startsWith(basePath + "/")) {
+            return null;
+        }
+        String relative = path.substring(basePath.length() + 1);
+        if (relative.startsWith(".idea/") || relative.startsWith(".git/")) {
+            return null;
+        }
+        return relative;
+    }
+
+    private static long stampOf(VirtualFile file) {
+        return file != null && file.isValid() ? file.getModificationStamp() : -1;
+    }
+
+    @Override
+    public void dispose() {
+        sinks.clear();
+    }
+
+    static ChangeFeed getInstance(Project project) {
+        return project.getService(ChangeFeed.class);
+    }
+
+    private enum Kind {
+        CREATED("created"), CHANGED("changed"), DELETED("deleted"), MOVED("moved");
+
+        final String id;
+
+        Kind(String id) {
+            this.id = id;
+        }
+    }
+
+    private static final class Change {
+        final Kind kind;
+        final String path;
+        final String oldPath;
+        final long stamp;
+
+        Change(Kind kind, String path, String oldPath, long stamp) {
+            this.kind = kind;
+            this.path = path;
+            this.oldPath = oldPath;
+            this.stamp = stamp;
+        }
+
+        JsonObject toJson() {
+            JsonObject object = new JsonObject();
+            object.addProperty("kind", kind.id);
+            object.addProperty("path", path);
+            if (oldPath != null) {
+                object.addProperty("oldPath", oldPath);
+            }
+            object.addProperty("stamp", stamp);
+            return object;
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.kirv.plugin;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.intellij.navigation.ChooseByNameContributor;
+import com.intellij.navigation.ChooseByNameContributorEx;
+import com.intellij.navigation.NavigationItem;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.PsiSearchHelper;
+import com.intellij.psi.search.UsageSearchContext;
+import com.intellij.psi.codeStyle.NameUtil;
+import com.intellij.psi.codeStyle.MinusculeMatcher;
+import com.intellij.util.indexing.FindSymbolParameters;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Project search for {@code jide_search} backed by the IDE's indexes.
+ * <p>
+ * {@code text} finds a substring, {@code word} a whole identifier-like word (both use the word
+ * index to pick candidate files, then scan their current contents) and {@code symbol} matches
+ * classes, methods and fields by name like Go to Symbol, looking at no more than
+ * {@link #MAX_SYMBOL_NAMES} matching names. The word index only knows whole words, so
+ * {@code text} uses it for a word that the query itself delimits on both sides and otherwise scans
+ * all project content files. Matches are handed to the page sink as
+ * {@code {"matches": [...], "dumb"}} frames of up to {@link #PAGE_SIZE} as soon as they are found.
+ * <p>
+ * While the IDE is indexing, {@code text} and {@code word} fall back to scanning all project
+ * content files and report {@code "dumb": true}; {@code symbol} waits for indexing to finish.
+ */
+final class CodeSearch {
+    static final int PAGE_SIZE = 50;
+    static final int MAX_SYMBOL_NAMES = 1000;
+    private static final int NAMES_PER_READ_ACTION = 16;
+    private static final int PREVIEW_CHARS = 200;
+
+    enum Mode {
+        TEXT, WORD, SYMBOL
+    }
+
+    private final Project project;
+    private final BridgeQuery query;
+    private final Mode mode;
+    private final String text;
+    private final boolean caseSensitive;
+    private final int limit;
+    private final Consumer<JsonObject> pageSink;
+    private JsonArray page = new JsonArray();
+    private int total;
+    private boolean dumb;
+
+    /**
+     * @param query     the bridge query, polled for cancellation; may be {@code null}
+     * @param pageSink  receives each full page and the final partial one
+     */
+    CodeSearch(Project project, BridgeQuery query, Mode mode, String text, boolean caseSensitive, int limit,
+               Consumer<JsonObject> pageSink) {
+        this.project = project;
+        this.query = query;
+        this.mode = mode;
+        this.text = text;
+        this.caseSensitive = caseSensitive;
+        this.limit = limit;
+        this.pageSink = pageSink;
+    }
+
+    /**
+     * Runs the search and returns {@code {"total", "truncated", "dumb"}}.
+     */
+    JsonObject run() {
+        if (mode == Mode.SYMBOL) {
+            searchSymbols();
+        } else {
+            for (VirtualFile file : candidateFiles()) {
+                if (isStopped()) {
+                    break;
+                }
+                scanFile(file);
+            }
+        }
+        flushPage();
+        checkCanceled();
+
+        JsonObject summary = new JsonObject();
+        summary.addProperty("total", total);
+        summary.addProperty("truncated", total >= limit);
+        summary.addProperty("dumb", dumb);
+        return summary;
+    }
+
+    private List<VirtualFile> candidateFiles() {
+        GlobalSearchScope scope = GlobalSearchScope.projectScope(project);
+        Set<VirtualFile> files = new LinkedHashSet<>();
+        dumb = DumbService.isDumb(project);
+
+        ReadAction.nonBlocking(() -> {
+            files.clear();
+            boolean dumbNow = DumbService.isDumb(project);
+            String indexWord = mode == Mode.WORD ? text : longestDelimitedWord(text);
+            if (dumbNow || indexWord == null) {
+                dumb |= dumbNow;
+                ProjectFileIndex.getInstance(project).iterateContent(file -> {
+                    if (!file.isDirectory() && !file.getFileType().isBinary()) {
+                        files.add(file);
+                    }
+                    return !isCanceled();
+                });
+                return;
+            }
+
+            PsiSearchHelper helper = PsiSearchHelper.getInstance(project);
+            if (mode == Mode.WORD) {
+                helper.processAllFilesWithWord(text, scope, psiFile -> {
+                    files.add(psiFile.getVirtualFile());
+                    return !isCanceled();
+                }, caseSensitive);
+            } else {
+                helper.processCandidateFilesForText(scope, UsageSearchContext.ANY, caseSensitive, indexWord, file -> {
+                    files.add(file);
+                    return !isCanceled();
+                });
+            }
+        }).expireWith(project).executeSynchronously();
+
+        return new ArrayList<>(files);
+    }
+
+    /**
+     * Returns the longest identifier-like word of {@code query} with a non-identifier character on
+     * both sides inside the query, i.e. one that must occur as a whole word in every matching file,
+     * or {@code null} if there is none (e.g. {@code Servic} may be the start of a longer word).
+     */
+    static String longestDelimitedWord(String query) {
+        String longest = null;
+        int i = 0;
+        while (i < query.length()) {
+            if (!Character.isJavaIdentifierPart(query.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < query.length() && Character.isJavaIdentifierPart(query.charAt(i))) {
+                i++;
+            }
+            boolean delimited = start > 0 && i < query.length();
+            if (delimited && (longest == null || i - start > longest.length())) {
+                longest = query.substring(start, i);
+            }
+        }
+        return longest;
+    }
+
+    private void scanFile(VirtualFile file) {
+        String content;
+        try {
+            content = FileContentReader.read(project, file).text;
+        } catch (IllegalArgumentException e) {
+            // binary, deleted or unreadable since it was indexed
+            return;
+        }
+
+        String path = toBridgePath(file);
+        int line = 0;
+        int lineStart = 0;
+        int from = 0;
+        while (!isStopped()) {
+            int index = indexOf(content, text, from, caseSensitive);
+            if (index < 0) {
+                return;
+            }
+            from = index + Math.max(1, text.length());
+            if (mode == Mode.WORD && !isWholeWord(content, index, text.length())) {
+                continue;
+            }
+
+            for (int i = lineStart; i < index; i++) {
+                if (content.charAt(i) == '\n') {
+                    line++;
+                    lineStart = i + 1;
+                }
+            }
+            int lineEnd = content.indexOf('\n', index);
+            String preview = content.substring(lineStart, lineEnd < 0 ? content.length() : lineEnd).strip();
+
+            JsonObject match = new JsonObject();
+            match.addProperty("path", path);
+            match.addProperty("line", line);
+            match.addProperty("column", index - lineStart);
+            match.addProperty("preview", preview.length() > PREVIEW_CHARS ? preview.substring(0, PREVIEW_CHARS) : preview);
+            add(match);
+        }
+    }
+
+    /**
+     * Offsets are taken in {@code content} itself: lowercasing a copy may change its length.
+     */
+    static int indexOf(String content, String needle, int from, boolean caseSensitive) {
+        if (caseSensitive) {
+            return content.indexOf(needle, from);
+        }
+        for (int i = from, last = content.length() - needle.length(); i <= last; i++) {
+            if (content.regionMatches(true, i, needle, 0, needle.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isWholeWord(String content, int start, int length) {
+        int end = start + length;
+        return (start == 0 || !Character.isJavaIdentifierPart(content.charAt(start - 1)))
+                && (end >= content.length() || !Character.isJavaIdentifierPart(content.charAt(end)));
+    }
+
+    private void searchSymbols() {
+        if (DumbService.isDumb(project)) {
+            dumb = true;
+            // let a streaming UI show that results are delayed by indexing
+            JsonObject frame = new JsonObject();
+            frame.add("matches", new JsonArray());
+            frame.addProperty("dumb", true);
+            pageSink.accept(frame);
+        }
+
+        GlobalSearchScope scope = GlobalSearchScope.projectScope(project);
+        MinusculeMatcher matcher = NameUtil.buildMatcher("*" + text).build();
+        List<ChooseByNameContributorEx> contributors = new ArrayList<>();
+        for (ChooseByNameContributor contributor : ChooseByNameContributor.SYMBOL_EP_NAME.getExtensionList()) {
+            if (contributor instanceof ChooseByNameContributorEx ex) {
+                contributors.add(ex);
+            }
+        }
+
+        List<String> names = ReadAction.nonBlocking(() -> {
+            Set<String> found = new LinkedHashSet<>();
+            for (ChooseByNameContributorEx contributor : contributors) {
+                contributor.processNames(name -> {
+                    if (matcher.matches(name)) {
+                        found.add(name);
+                    }
+                    return found.size() < MAX_SYMBOL_NAMES && !isCanceled();
+                }, scope, null);
+                if (found.size() >= MAX_SYMBOL_NAMES || isCanceled()) {
+                    break;
+                }
+            }
+            return new ArrayList<>(found);
+        }).inSmartMode(project).expireWith(project).executeSynchronously();
+
+        // short read actions over a few names each, so pages go out as they fill and a restart
+        // of one read action never emits the same match twice
+        FindSymbolParameters parameters = FindSymbolParameters.wrap(text, scope);
+        for (int from = 0; from < names.size() && !isStopped(); from += NAMES_PER_READ_ACTION) {
+            List<String> batch = names.subList(from, Math.min(names.size(), from + NAMES_PER_READ_ACTION));
+            int wanted = limit - total;
+            List<JsonObject> matches = ReadAction.nonBlocking(() -> {
+                List<JsonObject> found = new ArrayList<>();
+                for (String name : batch) {
+                    for (ChooseByNameContributorEx contributor : contributors) {
+                        contributor.processElementsWithName(name, item -> {
+                            JsonObject match = toSymbolMatch(name, item);
+                            if (match != null) {
+                                found.add(match);
+                            }
+                            return found.size() < wanted && !isCanceled();
+                        }, parameters);
+                    }
+                    if (found.size() >= wanted || isCanceled()) {
+                        break;
+                    }
+                }
+                return found;
+            }).inSmartMode(project).expireWith(project).executeSynchronously();
+
+            for (JsonObject match : matches) {
+                if (isStopped()) {
+                    break;
+                }
+                add(match);
+            }
+        }
+    }
+
+    private JsonObject toSymbolMatch(String name, NavigationItem item) {
+        if (!(item instanceof PsiElement element) || !element.isValid()) {
+            return null;
+        }
+        PsiFile psiFile = element.getContainingFile();
+        VirtualFile file = psiFile != null ? psiFile.getVirtualFile() : null;
+        if (file == null) {
+            return null;
+        }
+
+        JsonObject match = new JsonObject();
+        match.addProperty("name", name);
+        match.addProperty("path", toBridgePath(file));
+        Document document = PsiDocumentManager.getInstance(project).getDocument(psiFile);
+        TextRange range = element.getTextRange();
+        if (document != null && range != null && range.getStartOffset() <= document.getTextLength()) {
+            match.addProperty("line", document.getLineNumber(range.getStartOffset()));
+        }
+        if (item.getPresentation() != null && item.getPresentation().getLocationString() != null) {
+            match.addProperty("detail", item.getPresentation().getLocationString());
+        }
+        return match;
+    }
+
+    private void add(JsonObject match) {
+        page.add(match);
+        total++;
+        if (page.size() >= PAGE_SIZE) {
+            flushPage();
+        }
+    }
+
+    private void flushPage() {
+        if (!page.isEmpty()) {
+            JsonObject frame = new JsonObject();
+            frame.add("matches", page);
+            frame.addProperty("dumb", dumb);
+            pageSink.accept(frame);
+            page = new JsonArray();
+        }
+    }
+
+    private boolean isStopped() {
+        return total >= limit || isCanceled();
+    }
+
+    private boolean isCanceled() {
+        return query != null && query.isCanceled();
+    }
+
+    private void checkCanceled() {
+        if (query != null) {
+            query.checkCanceled();
+        }
+    }
+
+    private String toBridgePath(VirtualFile file) {
+        return ProjectPaths.toBridgePath(project.getBasePath(), file.getPath());
+    }
+}
@@ -8,6 +8,15 @@ import java.util.Properties;
 
 public class ConfigService {
     private Integer serverSidePort = 5000;
+    private Integer changesBatchWindowMs = 250;
+    private Integer changesMaxBatch = 500;
+    private Integer contextMaxFiles = 2000;
+    private Integer contextMaxBytes = 20 * 1024 * 1024;
+    private Integer browserSuspendAfterSeconds = 600;
+    private Integer browserPoolSize = 1;
+    private Integer browserPoolIdleSeconds = 600;
+    private Integer assetCacheMemoryMb = 32;
+    private Integer assetCacheDiskMb = 128;
     private String configFileName = "code_agent_cnfg.env";
     private Path configFilePath;
 
@@ -16,6 +25,10 @@ public class ConfigService {
         configFilePath = Paths.get(userHomeDirectory, configFileName);
     }
 
+    ConfigService(Path configFilePath) {
+        this.configFilePath = configFilePath;
+    }
+
     public void loadConfigFile() {
         Properties properties = new Properties();
 
@@ -32,12 +45,39 @@ public class ConfigService {
                 System.err.println("Invalid HTTP_PORT value in config file, using default: 5000");
             }
 
+            changesBatchWindowMs = readInt(properties, "CHANGES_BATCH_WINDOW_MS", 250, 1);
+            changesMaxBatch = readInt(properties, "CHANGES_MAX_BATCH", 500, 1);
+            contextMaxFiles = readInt(properties, "CONTEXT_MAX_FILES", 2000, 1);
+            contextMaxBytes = readInt(properties, "CONTEXT_MAX_BYTES", 20 * 1024 * 1024, 1);
+            browserSuspendAfterSeconds = readInt(properties, "BROWSER_SUSPEND_AFTER_SECONDS", 600, 0);
+            browserPoolSize = readInt(properties, "BROWSER_POOL_SIZE", 1, 0);
+            browserPoolIdleSeconds = readInt(properties, "BROWSER_POOL_IDLE_SECONDS", 600, 0);
+            assetCacheMemoryMb = readInt(properties, "ASSET_CACHE_MEMORY_MB", 32, 0);
+            assetCacheDiskMb = readInt(properties, "ASSET_CACHE_DISK_MB", 128, 0);
+
         } catch (IOException e) {
             // Config file not found or cannot be read - use default port
             serverSidePort = 5000;
         }
     }
 
+    private int readInt(Properties properties, String name, int defaultValue, int minValue) {
+        String value = properties.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            if (parsed >= minValue) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // fall through to the default below
+        }
+        System.err.println("Invalid " + name + " value in config file, using default: " + defaultValue);
+        return defaultValue;
+    }
+
     public void createConfigFromDefault() {
         try (InputStream input = getClass().getClassLoader().getResourceAsStream("META-INF/code_agent_cnfg.example")) {
             if (input == null) {
@@ -69,6 +109,42 @@ public class ConfigService {
         return serverSidePort;
     }
 
+    public Integer getChangesBatchWindowMs() {
+        return changesBatchWindowMs;
+    }
+
+    public Integer getChangesMaxBatch() {
+        return changesMaxBatch;
+    }
+
+    public Integer getContextMaxFiles() {
+        return contextMaxFiles;
+    }
+
+    public Integer getContextMaxBytes() {
+        return contextMaxBytes;
+    }
+
+    public Integer getBrowserSuspendAfterSeconds() {
+        return browserSuspendAfterSeconds;
+    }
+
+    public Integer getBrowserPoolSize() {
+        return browserPoolSize;
+    }
+
+    public Integer getBrowserPoolIdleSeconds() {
+        return browserPoolIdleSeconds;
+    }
+
+    public Integer getAssetCacheMemoryMb() {
+        return assetCacheMemoryMb;
+    }
+
+    public Integer getAssetCacheDiskMb() {
+        return assetCacheDiskMb;
+    }
+
     public Path getConfigFilePath() {
         return configFilePath;
     }
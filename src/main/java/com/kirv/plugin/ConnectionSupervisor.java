@@ -0,0 +1,144 @@
+package com.kirv.plugin;
+
+import com.intellij.util.concurrency.AppExecutorUtil;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches whether the local agent server accepts connections, so the web UI is only loaded once it
+ * is up and the window notices when it goes away.
+ * <p>
+ * Probes are non-blocking NIO connects polled from the application scheduler, so no thread waits
+ * on the socket. While the server is down they are retried with exponential backoff from
+ * {@link #MIN_BACKOFF_MS} to {@link #MAX_BACKOFF_MS}; while it is up it is checked every
+ * {@link #HEALTH_INTERVAL_MS}. The listener is told about every change, starting with the result
+ * of the first probe.
+ */
+final class ConnectionSupervisor {
+    static final long MIN_BACKOFF_MS = 250;
+    static final long MAX_BACKOFF_MS = 10_000;
+    static final long HEALTH_INTERVAL_MS = 5_000;
+    private static final long CONNECT_TIMEOUT_MS = 2_000;
+    private static final long POLL_MS = 50;
+
+    interface Listener {
+        void onConnected();
+
+        void onDisconnected();
+    }
+
+    private final InetSocketAddress address;
+    private final Listener listener;
+    private boolean running;
+    private Boolean connected;
+    private long backoffMs = MIN_BACKOFF_MS;
+    private SocketChannel pending;
+    private long pendingSince;
+    private ScheduledFuture<?> next;
+
+    ConnectionSupervisor(int port, Listener listener) {
+        this.address = new InetSocketAddress("localhost", port);
+        this.listener = listener;
+    }
+
+    synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        schedule(0);
+    }
+
+    synchronized void stop() {
+        running = false;
+        if (next != null) {
+            next.cancel(false);
+            next = null;
+        }
+        closePending();
+    }
+
+    private void probe() {
+        boolean changed;
+        boolean up;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            Boolean result = poll();
+            if (result == null) {
+                schedule(POLL_MS);
+                return;
+            }
+
+            up = result;
+            changed = connected == null || connected != up;
+            connected = up;
+            if (up) {
+                backoffMs = MIN_BACKOFF_MS;
+                schedule(HEALTH_INTERVAL_MS);
+            } else {
+                schedule(backoffMs);
+                backoffMs = Math.min(MAX_BACKOFF_MS, backoffMs * 2);
+            }
+        }
+
+        if (changed) {
+            if (up) {
+                listener.onConnected();
+            } else {
+                listener.onDisconnected();
+            }
+        }
+    }
+
+    /**
+     * Starts or advances a connect attempt: {@code true} once connected, {@code false} when refused
+     * or timed out, {@code null} while still in progress.
+     */
+    private Boolean poll() {
+        try {
+            if (pending == null) {
+                pending = SocketChannel.open();
+                pending.configureBlocking(false);
+                pendingSince = System.currentTimeMillis();
+                if (pending.connect(address)) {
+                    closePending();
+                    return true;
+                }
+            }
+            if (pending.finishConnect()) {
+                closePending();
+                return true;
+            }
+        } catch (IOException e) {
+            closePending();
+            return false;
+        }
+
+        if (System.currentTimeMillis() - pendingSince > CONNECT_TIMEOUT_MS) {
+            closePending();
+            return false;
+        }
+        return null;
+    }
+
+    private void closePending() {
+        if (pending != null) {
+            try {
+                pending.close();
+            } catch (IOException e) {
+                // nothing to release beyond the descriptor
+            }
+            pending = null;
+        }
+    }
+
+    private void schedule(long delayMs) {
+        next = AppExecutorUtil.getAppScheduledExecutorService().schedule(this::probe, delayMs, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,229 @@
+package com.kirv.plugin;
+
+import com.intellij.notification.NotificationGroupManager;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.fileTypes.FileTypeManager;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Expands selected or dropped directories into the files they contain, in a cancellable
+ * background task with a progress indicator.
+ * <p>
+ * Directories are walked level by level, each level listed by a few parallel workers; excluded and
+ * ignored folders and binary files are skipped, and the walk stops once {@code CONTEXT_MAX_FILES}
+ * files or {@code CONTEXT_MAX_BYTES} bytes have been collected. Which files are kept does not depend
+ * on thread timing: the same selection always yields the same files in the same order.
+ * The user is told with a notification when that cuts the selection short.
+ */
+final class ContextFilesCollector {
+    private static final Logger LOG = Logger.getInstance(ContextFilesCollector.class);
+    static final String NOTIFICATION_GROUP = "Agent-0.7";
+    private static final int PARALLELISM = 4;
+    private static final ExecutorService WALKERS =
+            AppExecutorUtil.createBoundedApplicationPoolExecutor("Agent context collector", PARALLELISM);
+
+    private ContextFilesCollector() {
+    }
+
+    private static boolean containsDirectory(List<File> files) {
+        for (File file : files) {
+            if (file.isDirectory()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Expands {@code files} in the background and passes the result to {@code consumer} on the EDT.
+     * Plain files are kept as they are, in selection order, ahead of the expanded directory contents;
+     * a selection without directories is passed on unchanged.
+     */
+    static void collect(@NotNull Project project, @NotNull List<File> files, @NotNull Consumer<ArrayList<File>> consumer) {
+        new Task.Backgroundable(project, "Collecting files for agent context", true) {
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                ArrayList<File> result = containsDirectory(files) ? expand(project, files, indicator) : new ArrayList<>(files);
+                ApplicationManager.getApplication().invokeLater(() -> consumer.accept(result), ModalityState.nonModal(), project.getDisposed());
+            }
+        }.queue();
+    }
+
+    private static ArrayList<File> expand(Project project, List<File> files, ProgressIndicator indicator) {
+        ConfigService configService = new ConfigService();
+        configService.loadConfigFile();
+        Walk walk = new Walk(project, indicator, configService.getContextMaxFiles(), configService.getContextMaxBytes());
+
+        indicator.setIndeterminate(true);
+        Set<File> result = new LinkedHashSet<>();
+        List<VirtualFile> directories = new ArrayList<>();
+        for (File file : files) {
+            if (!file.isDirectory()) {
+                result.add(file);
+                continue;
+            }
+            VirtualFile directory = LocalFileSystem.getInstance().refreshAndFindFileByIoFile(file);
+            if (directory != null && !walk.isSkipped(directory)) {
+                directories.add(directory);
+            }
+        }
+
+        walk.run(directories);
+        for (VirtualFile file : walk.collected) {
+            result.add(new File(file.getPath()));
+        }
+        if (walk.limitReached) {
+            LOG.warn("Agent context limit reached, added " + walk.collected.size() + " files from the selected folders");
+            notifyTruncated(project, walk);
+        }
+        return new ArrayList<>(result);
+    }
+
+    private static void notifyTruncated(Project project, Walk walk) {
+        String content = "Added only the first " + walk.collected.size() + " files from the selected folders: "
+                + "the context is limited to CONTEXT_MAX_FILES=" + walk.maxFiles
+                + " files and CONTEXT_MAX_BYTES=" + walk.maxBytes + " bytes.";
+        NotificationGroupManager.getInstance()
+                .getNotificationGroup(NOTIFICATION_GROUP)
+                .createNotification("Agent context truncated", content, NotificationType.WARNING)
+                .notify(project);
+    }
+
+    private static final class Walk {
+        final Project project;
+        final ProgressIndicator indicator;
+        final int maxFiles;
+        final long maxBytes;
+        final List<VirtualFile> collected = new ArrayList<>();
+        long byteCount;
+        boolean limitReached;
+
+        Walk(Project project, ProgressIndicator indicator, int maxFiles, long maxBytes) {
+            this.project = project;
+            this.indicator = indicator;
+            this.maxFiles = maxFiles;
+            this.maxBytes = maxBytes;
+        }
+
+        /**
+         * Walks breadth-first. The directories of one level are listed in parallel, but the listings are
+         * consumed in order, so the collected files and where the limits cut them off do not depend on timing.
+         */
+        void run(List<VirtualFile> roots) {
+            List<VirtualFile> level = roots;
+            while (!level.isEmpty() && !limitReached) {
+                indicator.checkCanceled();
+                List<Callable<Listing>> listings = new ArrayList<>(level.size());
+                for (VirtualFile directory : level) {
+                    listings.add(() -> list(directory));
+                }
+                List<Future<Listing>> results;
+                try {
+                    results = WALKERS.invokeAll(listings);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ProcessCanceledException();
+                }
+
+                List<VirtualFile> next = new ArrayList<>();
+                for (Future<Listing> result : results) {
+                    Listing listing;
+                    try {
+                        listing = result.get();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new ProcessCanceledException();
+                    } catch (ExecutionException e) {
+                        indicator.checkCanceled();
+                        LOG.warn("Agent context walk failed", e.getCause());
+                        continue;
+                    }
+                    next.addAll(listing.directories);
+                    if (!take(listing.files)) {
+                        break;
+                    }
+                }
+                indicator.setText("Collecting files for agent context: " + collected.size());
+                level = next;
+            }
+            indicator.checkCanceled();
+        }
+
+        private boolean take(List<VirtualFile> files) {
+            for (VirtualFile file : files) {
+                long length = file.getLength();
+                if (collected.size() >= maxFiles || byteCount + length > maxBytes) {
+                    limitReached = true;
+                    return false;
+                }
+                byteCount += length;
+                collected.add(file);
+            }
+            return true;
+        }
+
+        /**
+         * Lists one directory in name order, without the skipped and binary entries. Runs on a walker thread.
+         */
+        private Listing list(VirtualFile directory) {
+            Listing listing = new Listing();
+            if (indicator.isCanceled()) {
+                return listing;
+            }
+            indicator.setText2(directory.getPath());
+            VirtualFile[] children = directory.getChildren().clone();
+            Arrays.sort(children, Comparator.comparing(VirtualFile::getName));
+            for (VirtualFile child : children) {
+                if (indicator.isCanceled()) {
+                    break;
+                }
+                if (isSkipped(child)) {
+                    continue;
+                }
+                if (child.isDirectory()) {
+                    listing.directories.add(child);
+                } else if (!child.getFileType().isBinary()) {
+                    listing.files.add(child);
+                }
+            }
+            return listing;
+        }
+
+        boolean isSkipped(VirtualFile file) {
+            if (FileTypeManager.getInstance().isFileIgnored(file)) {
+                return true;
+            }
+            return ReadAction.compute(() -> !project.isDisposed() && ProjectFileIndex.getInstance(project).isExcluded(file));
+        }
+    }
+
+    private static final class Listing {
+        final List<VirtualFile> files = new ArrayList<>();
+        final List<VirtualFile> directories = new ArrayList<>();
+    }
+}
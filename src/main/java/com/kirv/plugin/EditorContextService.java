@@ -0,0 +1,252 @@
+package com.kirv.plugin;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.editor.Caret;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.EditorFactory;
+import com.intellij.openapi.editor.LogicalPosition;
+import com.intellij.openapi.editor.event.CaretEvent;
+import com.intellij.openapi.editor.event.CaretListener;
+import com.intellij.openapi.editor.event.EditorEventMulticaster;
+import com.intellij.openapi.editor.event.SelectionEvent;
+import com.intellij.openapi.editor.event.SelectionListener;
+import com.intellij.openapi.editor.event.VisibleAreaEvent;
+import com.intellij.openapi.editor.event.VisibleAreaListener;
+import com.intellij.openapi.fileEditor.FileEditor;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.fileEditor.FileEditorManagerEvent;
+import com.intellij.openapi.fileEditor.FileEditorManagerListener;
+import com.intellij.openapi.fileEditor.TextEditor;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snapshot of what the user is looking at, for {@code jide_get_context}: open files, the active file,
+ * caret, selection and visible line range.
+ * <p>
+ * The snapshot is built in a non-blocking read action and cached until a caret, selection, scroll or
+ * editor tab event arrives, or the active document's modification stamp changes, so a UI polling
+ * it gets the cached string back without touching the editor. The visible line range depends on
+ * Swing state, so it is captured on the EDT when the editor scrolls or is selected, not in the read action.
+ */
+@Service(Service.Level.PROJECT)
+public final class EditorContextService implements Disposable {
+    static final int MAX_SELECTION_CHARS = 64 * 1024;
+    private static final Key<int[]> VISIBLE_LINES = Key.create("agent.editorContext.visibleLines");
+
+    private final Project project;
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Snapshot cached;
+
+    EditorContextService(Project project) {
+        this.project = project;
+
+        EditorEventMulticaster multicaster = EditorFactory.getInstance().getEventMulticaster();
+        multicaster.addCaretListener(new CaretListener() {
+            @Override
+            public void caretPositionChanged(@NotNull CaretEvent event) {
+                onEditorEvent(event.getEditor());
+            }
+        }, this);
+        multicaster.addSelectionListener(new SelectionListener() {
+            @Override
+            public void selectionChanged(@NotNull SelectionEvent event) {
+                onEditorEvent(event.getEditor());
+            }
+        }, this);
+        multicaster.addVisibleAreaListener(new VisibleAreaListener() {
+            @Override
+            public void visibleAreaChanged(@NotNull VisibleAreaEvent event) {
+                Editor editor = event.getEditor();
+                if (isProjectEditor(editor)) {
+                    captureVisibleLines(editor, event.getNewRectangle());
+                    generation.incrementAndGet();
+                }
+            }
+        }, this);
+        project.getMessageBus().connect(this).subscribe(FileEditorManagerListener.FILE_EDITOR_MANAGER, new FileEditorManagerListener() {
+            @Override
+            public void fileOpened(@NotNull FileEditorManager source, @NotNull VirtualFile file) {
+                generation.incrementAndGet();
+            }
+
+            @Override
+            public void fileClosed(@NotNull FileEditorManager source, @NotNull VirtualFile file) {
+                generation.incrementAndGet();
+            }
+
+            @Override
+            public void selectionChanged(@NotNull FileEditorManagerEvent event) {
+                if (event.getNewEditor() instanceof TextEditor textEditor) {
+                    Editor editor = textEditor.getEditor();
+                    captureVisibleLines(editor, editor.getScrollingModel().getVisibleArea());
+                }
+                generation.incrementAndGet();
+            }
+        });
+
+        // editors opened before this service existed have not scrolled since
+        ApplicationManager.getApplication().invokeLater(() -> {
+            for (FileEditor fileEditor : FileEditorManager.getInstance(project).getSelectedEditors()) {
+                if (fileEditor instanceof TextEditor textEditor) {
+                    Editor editor = textEditor.getEditor();
+                    captureVisibleLines(editor, editor.getScrollingModel().getVisibleArea());
+                }
+            }
+            generation.incrementAndGet();
+        }, project.getDisposed());
+    }
+
+    private boolean isProjectEditor(Editor editor) {
+        return editor.getProject() == null || editor.getProject() == project;
+    }
+
+    private void onEditorEvent(Editor editor) {
+        if (isProjectEditor(editor)) {
+            generation.incrementAndGet();
+        }
+    }
+
+    /**
+     * Stores the editor's visible line range for {@link #compute}. EDT only: the scrolling model and
+     * the coordinate mapping read Swing state.
+     */
+    private static void captureVisibleLines(Editor editor, Rectangle visibleArea) {
+        if (editor.isDisposed() || visibleArea == null) {
+            return;
+        }
+        int startLine = editor.xyToLogicalPosition(visibleArea.getLocation()).line;
+        int endLine = editor.xyToLogicalPosition(new Point(visibleArea.x, visibleArea.y + visibleArea.height)).line;
+        editor.putUserData(VISIBLE_LINES, new int[]{startLine, endLine});
+    }
+
+    /**
+     * Returns the context as JSON:
+     * {@code {"openFiles": [...], "activeFile": {"path", "fileType", "lineCount", "modificationStamp"} | null,
+     * "caret": {"line", "column", "offset"}, "selection": {"startLine", "endLine", "text", "truncated"} | null,
+     * "visibleRange": {"startLine", "endLine"} | null}}. Lines and columns are 0-based; the visible range
+     * is {@code null} until the active editor has been laid out.
+     */
+    String getContext() {
+        Snapshot snapshot = cached;
+        if (snapshot != null && snapshot.isCurrent(generation.get())) {
+            return snapshot.json;
+        }
+
+        long startGeneration = generation.get();
+        Snapshot computed = ReadAction.nonBlocking(() -> compute(startGeneration))
+                .expireWith(this)
+                .executeSynchronously();
+        cached = computed;
+        return computed.json;
+    }
+
+    private Snapshot compute(long startGeneration) {
+        FileEditorManager editorManager = FileEditorManager.getInstance(project);
+        JsonObject result = new JsonObject();
+
+        JsonArray openFiles = new JsonArray();
+        for (VirtualFile file : editorManager.getOpenFiles()) {
+            openFiles.add(toBridgePath(file));
+        }
+        result.add("openFiles", openFiles);
+
+        FileEditor selected = editorManager.getSelectedEditor();
+        Editor editor = selected instanceof TextEditor textEditor ? textEditor.getEditor() : null;
+        VirtualFile activeFile = selected != null ? selected.getFile() : null;
+        Document document = editor != null ? editor.getDocument() : null;
+
+        if (activeFile == null) {
+            result.add("activeFile", null);
+        } else {
+            JsonObject active = new JsonObject();
+            active.addProperty("path", toBridgePath(activeFile));
+            active.addProperty("fileType", activeFile.getFileType().getName());
+            if (document != null) {
+                active.addProperty("lineCount", document.getLineCount());
+                active.addProperty("modificationStamp", document.getModificationStamp());
+            }
+            result.add("activeFile", active);
+        }
+
+        if (editor != null && !editor.isDisposed()) {
+            Caret caret = editor.getCaretModel().getPrimaryCaret();
+            LogicalPosition position = caret.getLogicalPosition();
+            JsonObject caretJson = new JsonObject();
+            caretJson.addProperty("line", position.line);
+            caretJson.addProperty("column", position.column);
+            caretJson.addProperty("offset", caret.getOffset());
+            result.add("caret", caretJson);
+
+            if (caret.hasSelection()) {
+                String text = caret.getSelectedText();
+                JsonObject selection = new JsonObject();
+                selection.addProperty("startLine", document.getLineNumber(caret.getSelectionStart()));
+                selection.addProperty("endLine", document.getLineNumber(caret.getSelectionEnd()));
+                boolean truncated = text != null && text.length() > MAX_SELECTION_CHARS;
+                selection.addProperty("text", truncated ? text.substring(0, MAX_SELECTION_CHARS) : text);
+                selection.addProperty("truncated", truncated);
+                result.add("selection", selection);
+            } else {
+                result.add("selection", null);
+            }
+
+            int[] visibleLines = editor.getUserData(VISIBLE_LINES);
+            if (visibleLines != null) {
+                JsonObject visibleRange = new JsonObject();
+                // captured before the latest edits, so keep it inside the document
+                int lastLine = Math.max(0, document.getLineCount() - 1);
+                visibleRange.addProperty("startLine", Math.min(lastLine, visibleLines[0]));
+                visibleRange.addProperty("endLine", Math.min(lastLine, visibleLines[1]));
+                result.add("visibleRange", visibleRange);
+            } else {
+                result.add("visibleRange", null);
+            }
+        }
+
+        return new Snapshot(result.toString(), startGeneration, document, document != null ? document.getModificationStamp() : -1);
+    }
+
+    private String toBridgePath(VirtualFile file) {
+        return ProjectPaths.toBridgePath(project.getBasePath(), file.getPath());
+    }
+
+    @Override
+    public void dispose() {
+        cached = null;
+    }
+
+    static EditorContextService getInstance(Project project) {
+        return project.getService(EditorContextService.class);
+    }
+
+    private static final class Snapshot {
+        final String json;
+        final long generation;
+        final Document document;
+        final long documentStamp;
+
+        Snapshot(String json, long generation, Document document, long documentStamp) {
+            this.json = json;
+            this.generation = generation;
+            this.document = document;
+            this.documentStamp = documentStamp;
+        }
+
+        boolean isCurrent(long currentGeneration) {
+            return generation == currentGeneration
+                    && (document == null || document.getModificationStamp() == documentStamp);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.kirv.plugin;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+
+import java.io.IOException;
+
+/**
+ * Reads file text the way the IDE sees it: the in-memory {@link Document} when the file is open
+ * (including unsaved edits), otherwise the VFS-cached content.
+ */
+final class FileContentReader {
+    private FileContentReader() {
+    }
+
+    /**
+     * Reads {@code file} in a non-blocking read action.
+     *
+     * @throws IllegalArgumentException if the file is missing, a directory, binary or unreadable
+     */
+    static Content read(Project project, VirtualFile file) {
+        Content content = ReadAction.nonBlocking(() -> readInReadAction(file))
+                .expireWith(project)
+                .executeSynchronously();
+        if (content.error != null) {
+            throw new IllegalArgumentException(content.error);
+        }
+        return content;
+    }
+
+    private static Content readInReadAction(VirtualFile file) {
+        if (!file.isValid()) {
+            return Content.error("file_not_found: " + file.getPath());
+        }
+        if (file.isDirectory()) {
+            return Content.error("is_directory: " + file.getPath());
+        }
+
+        Document document = FileDocumentManager.getInstance().getCachedDocument(file);
+        if (document != null) {
+            return new Content(document.getImmutableCharSequence().toString(), document.getModificationStamp(), "document");
+        }
+
+        if (file.getFileType().isBinary()) {
+            return Content.error("binary_file: " + file.getPath());
+        }
+        try {
+            return new Content(VfsUtilCore.loadText(file), file.getModificationStamp(), "vfs");
+        } catch (IOException e) {
+            return Content.error("read_failed: " + file.getPath());
+        }
+    }
+
+    static final class Content {
+        final String text;
+        final long modificationStamp;
+        final String source;
+        final String error;
+
+        Content(String text, long modificationStamp, String source) {
+            this(text, modificationStamp, source, null);
+        }
+
+        private Content(String text, long modificationStamp, String source, String error) {
+            this.text = text;
+            this.modificationStamp = modificationStamp;
+            this.source = source;
+            this.error = error;
+        }
+
+        static Content error(String error) {
+            return new Content(null, -1, null, error);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.kirv.plugin;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.intellij.ide.structureView.StructureViewBuilder;
+import com.intellij.ide.structureView.StructureViewModel;
+import com.intellij.ide.structureView.StructureViewTreeElement;
+import com.intellij.ide.structureView.TreeBasedStructureViewBuilder;
+import com.intellij.ide.util.treeView.smartTree.TreeElement;
+import com.intellij.lang.LanguageStructureViewBuilder;
+import com.intellij.navigation.ItemPresentation;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.util.concurrency.AppExecutorUtil;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Compact structure skeletons of files for {@code jide_get_outline}, built from the IDE's structure
+ * view: classes, members and their signatures with line ranges, instead of whole file contents.
+ * <p>
+ * Outlines are built in parallel non-blocking read actions and cached per file by PSI modification
+ * stamp, which also covers unsaved edits.
+ */
+@Service(Service.Level.PROJECT)
+public final class FileOutlineService {
+    static final int MAX_DEPTH = 4;
+    static final int MAX_NODES = 2000;
+    private static final int MAX_CACHE_SIZE = 1024;
+    private static final int PARALLELISM = 4;
+    private static final ExecutorService EXECUTOR =
+            AppExecutorUtil.createBoundedApplicationPoolExecutor("Agent outline", PARALLELISM);
+
+    private final Project project;
+    private final Map<VirtualFile, Entry> cache = new ConcurrentHashMap<>();
+
+    FileOutlineService(Project project) {
+        this.project = project;
+    }
+
+    Future<JsonObject> outlineAsync(VirtualFile file) {
+        return EXECUTOR.submit(() -> outline(file));
+    }
+
+    /**
+     * Returns {@code {"stamp", "outline": [{"name", "detail"?, "startLine", "endLine", "children"?}]}}
+     * with 0-based lines, or {@code {"error"}} when the file has no structure view.
+     */
+    JsonObject outline(VirtualFile file) {
+        return ReadAction.nonBlocking(() -> outlineInReadAction(file))
+                .expireWith(project)
+                .executeSynchronously();
+    }
+
+    private JsonObject outlineInReadAction(VirtualFile file) {
+        JsonObject result = new JsonObject();
+        if (!file.isValid() || file.isDirectory()) {
+            result.addProperty("error", "file_not_found: " + file.getPath());
+            return result;
+        }
+        PsiFile psiFile = PsiManager.getInstance(project).findFile(file);
+        if (psiFile == null) {
+            result.addProperty("error", "no_psi: " + file.getPath());
+            return result;
+        }
+
+        long stamp = psiFile.getModificationStamp();
+        Entry cached = cache.get(file);
+        if (cached != null && cached.stamp == stamp) {
+            return cached.outline;
+        }
+
+        StructureViewBuilder builder = LanguageStructureViewBuilder.getInstance().getStructureViewBuilder(psiFile);
+        if (!(builder instanceof TreeBasedStructureViewBuilder treeBuilder)) {
+            result.addProperty("error", "no_structure: " + file.getPath());
+            return result;
+        }
+
+        Document document = PsiDocumentManager.getInstance(project).getDocument(psiFile);
+        StructureViewModel model = treeBuilder.createStructureViewModel(null);
+        try {
+            int[] budget = {MAX_NODES};
+            result.addProperty("stamp", stamp);
+            result.add("outline", children(model.getRoot(), document, 0, budget));
+            if (budget[0] <= 0) {
+                result.addProperty("truncated", true);
+            }
+        } finally {
+            Disposer.dispose(model);
+        }
+
+        if (cache.size() >= MAX_CACHE_SIZE) {
+            cache.clear();
+        }
+        cache.put(file, new Entry(stamp, result));
+        return result;
+    }
+
+    private static JsonArray children(StructureViewTreeElement parent, Document document, int depth, int[] budget) {
+        JsonArray nodes = new JsonArray();
+        for (TreeElement child : parent.getChildren()) {
+            if (budget[0]-- <= 0) {
+                break;
+            }
+            ItemPresentation presentation = child.getPresentation();
+            JsonObject node = new JsonObject();
+            node.addProperty("name", presentation.getPresentableText());
+            String location = presentation.getLocationString();
+            if (location != null && !location.isEmpty()) {
+                node.addProperty("detail", location);
+            }
+
+            if (child instanceof StructureViewTreeElement element) {
+                Object value = element.getValue();
+                if (document != null && value instanceof PsiElement psiElement && psiElement.isValid()) {
+                    TextRange range = psiElement.getTextRange();
+                    if (range != null && range.getEndOffset() <= document.getTextLength()) {
+                        node.addProperty("startLine", document.getLineNumber(range.getStartOffset()));
+                        node.addProperty("endLine", document.getLineNumber(range.getEndOffset()));
+                    }
+                }
+                if (depth + 1 < MAX_DEPTH) {
+                    JsonArray grandChildren = children(element, document, depth + 1, budget);
+                    if (!grandChildren.isEmpty()) {
+                        node.add("children", grandChildren);
+                    }
+                }
+            }
+            nodes.add(node);
+        }
+        return nodes;
+    }
+
+    static FileOutlineService getInstance(Project project) {
+        return project.getService(FileOutlineService.class);
+    }
+
+    private static final class Entry {
+        final long stamp;
+        final JsonObject outline;
+
+        Entry(long stamp, JsonObject outline) {
+            this.stamp = stamp;
+            this.outline = outline;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.kirv.plugin;
+
+import java.io.File;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Turns dropped or selected files into project-relative {@code @file} references.
+ */
+final class FilesDragMessage {
+    static final int CHUNK_SIZE = 500;
+    private static final int PARALLEL_THRESHOLD = 2000;
+
+    private FilesDragMessage() {
+    }
+
+    /**
+     * Returns the distinct project-relative paths (with {@code /} separators) of {@code files} in
+     * drop order; files outside {@code basePath} are dropped. Large drops are relativized in parallel.
+     */
+    static List<String> relativize(List<File> files, String basePath) {
+        Path base = Paths.get(basePath).normalize();
+        LinkedHashSet<String> unique = new LinkedHashSet<>(files.size() * 2);
+        for (File file : files) {
+            unique.add(file.getPath());
+        }
+
+        Stream<String> paths = unique.size() >= PARALLEL_THRESHOLD ? unique.parallelStream() : unique.stream();
+        return paths.map(path -> relativize(base, path))
+                .filter(path -> path != null && !path.isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    private static String relativize(Path base, String path) {
+        try {
+            Path p = Paths.get(path).normalize();
+            return p.startsWith(base) ? base.relativize(p).toString().replace('\\', '/') : null;
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Legacy single-string form: {@code "@file a @file b "}.
+     */
+    static String toLegacyMessage(List<String> relativePaths) {
+        StringBuilder message = new StringBuilder(relativePaths.size() * 32);
+        for (String path : relativePaths) {
+            message.append("@file ").append(path).append(' ');
+        }
+        return message.toString();
+    }
+
+    static List<List<String>> chunks(List<String> relativePaths) {
+        List<List<String>> chunks = new ArrayList<>();
+        for (int start = 0; start < relativePaths.size(); start += CHUNK_SIZE) {
+            chunks.add(relativePaths.subList(start, Math.min(relativePaths.size(), start + CHUNK_SIZE)));
+        }
+        return chunks;
+    }
+}
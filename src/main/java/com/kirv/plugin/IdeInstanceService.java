@@ -1,14 +1,27 @@
 package com.kirv.plugin;
 
+import com.intellij.diff.DiffContentFactory;
+import com.intellij.diff.DiffDialogHints;
 import com.intellij.diff.DiffManager;
 import com.intellij.diff.DiffRequestFactory;
+import com.intellij.diff.chains.SimpleDiffRequestChain;
+import com.intellij.diff.contents.DiffContent;
+import com.intellij.diff.requests.DiffRequest;
+import com.intellij.diff.requests.SimpleDiffRequest;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.Service;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.fileEditor.FileEditorManager;
 import com.intellij.openapi.fileEditor.OpenFileDescriptor;
+import com.intellij.openapi.fileTypes.FileType;
+import com.intellij.openapi.fileTypes.FileTypeManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Service(Service.Level.PROJECT)
 public final class IdeInstanceService {
     private final Project project;
@@ -20,12 +33,16 @@ public final class IdeInstanceService {
     void openFile(VirtualFile vFile) {
         if (project == null || project.isDisposed() || vFile == null) return;
 
+        AgentJfrEvents.EditorOpen event = new AgentJfrEvents.EditorOpen();
+        event.begin();
         ApplicationManager.getApplication().invokeLater(
                 () -> {
+                    long edtStart = System.nanoTime();
                     if (!project.isDisposed()) {
                         FileEditorManager.getInstance(project)
                                 .openTextEditor(new OpenFileDescriptor(project, vFile), true);
                     }
+                    commitOpen(event, "editor", vFile.getPath(), vFile.getLength(), edtStart);
                 },
                 com.intellij.openapi.application.ModalityState.nonModal(),
                 project.getDisposed() // expire if project closes
@@ -33,17 +50,89 @@ public final class IdeInstanceService {
     }
 
     void openDiffFiles(VirtualFile left, VirtualFile right) {
+        AgentJfrEvents.EditorOpen event = new AgentJfrEvents.EditorOpen();
+        event.begin();
         com.intellij.openapi.project.DumbService.getInstance(project).runWhenSmart(() ->
                 ApplicationManager.getApplication().invokeLater(() -> {
                     if (project.isDisposed()) return;
                     if (left == null || right == null || !left.isValid() || !right.isValid()) return;
 
+                    long edtStart = System.nanoTime();
                     var request = DiffRequestFactory.getInstance().createFromFiles(project, left, right);
                     DiffManager.getInstance().showDiff(project, request);
+                    commitOpen(event, "diff", right.getPath(), left.getLength() + right.getLength(), edtStart);
                 }, com.intellij.openapi.application.ModalityState.nonModal())
         );
     }
 
+    /**
+     * Shows each file's live document against text proposed by the agent, without writing the
+     * proposal to disk. Several files open as one diff chain.
+     */
+    void openProposedDiffs(List<ProposedChange> changes) {
+        if (changes.isEmpty()) return;
+
+        AgentJfrEvents.EditorOpen event = new AgentJfrEvents.EditorOpen();
+        event.begin();
+        com.intellij.openapi.project.DumbService.getInstance(project).runWhenSmart(() ->
+                ApplicationManager.getApplication().invokeLater(() -> {
+                    if (project.isDisposed()) return;
+
+                    long edtStart = System.nanoTime();
+                    long bytes = 0;
+                    DiffContentFactory contentFactory = DiffContentFactory.getInstance();
+                    List<DiffRequest> requests = new ArrayList<>();
+                    for (ProposedChange change : changes) {
+                        VirtualFile file = change.file != null && change.file.isValid() ? change.file : null;
+                        Document document = file == null ? null : FileDocumentManager.getInstance().getDocument(file);
+                        FileType fileType = file != null
+                                ? file.getFileType()
+                                : FileTypeManager.getInstance().getFileTypeByFileName(change.path);
+
+                        DiffContent current = document != null
+                                ? contentFactory.create(project, document, file)
+                                : contentFactory.createEmpty();
+                        DiffContent proposed = contentFactory.create(project, change.proposedText, fileType);
+                        requests.add(new SimpleDiffRequest(change.path, current, proposed, "Current", "Proposed by agent"));
+                        bytes += change.proposedText.length();
+                    }
+
+                    if (requests.size() == 1) {
+                        DiffManager.getInstance().showDiff(project, requests.get(0));
+                    } else {
+                        DiffManager.getInstance().showDiff(project, new SimpleDiffRequestChain(requests), DiffDialogHints.DEFAULT);
+                    }
+                    String path = changes.size() == 1 ? changes.get(0).path : changes.size() + " files";
+                    commitOpen(event, "proposed_diff", path, bytes, edtStart);
+                }, com.intellij.openapi.application.ModalityState.nonModal())
+        );
+    }
+
+    private static void commitOpen(AgentJfrEvents.EditorOpen event, String kind, String path, long bytes, long edtStart) {
+        if (event.shouldCommit()) {
+            event.kind = kind;
+            event.path = path;
+            event.bytes = bytes;
+            event.edtTime = System.nanoTime() - edtStart;
+            event.commit();
+        }
+    }
+
+    static final class ProposedChange {
+        final String path;
+        final VirtualFile file;
+        final String proposedText;
+
+        /**
+         * @param file the existing file, or {@code null} when the agent proposes a new file
+         */
+        ProposedChange(String path, VirtualFile file, String proposedText) {
+            this.path = path;
+            this.file = file;
+            this.proposedText = proposedText;
+        }
+    }
+
     static IdeInstanceService getInstance(Project project) {
         return project.getService(IdeInstanceService.class);
     }
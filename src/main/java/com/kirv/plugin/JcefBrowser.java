@@ -1,25 +1,35 @@
 package com.kirv.plugin;
 
 import java.io.File;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 import javax.swing.*;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
 import org.apache.commons.lang3.RandomUtils;
-import org.cef.CefClient;
 import org.cef.browser.CefBrowser;
 import org.cef.browser.CefFrame;
-import org.cef.browser.CefMessageRouter;
+import org.cef.callback.CefQueryCallback;
+import org.cef.network.CefRequest;
+import org.cef.handler.CefDisplayHandler;
 import org.cef.handler.CefDisplayHandlerAdapter;
+import org.cef.handler.CefLifeSpanHandler;
 import org.cef.handler.CefLifeSpanHandlerAdapter;
+import org.cef.handler.CefLoadHandler;
 import org.cef.handler.CefLoadHandlerAdapter;
+import org.cef.handler.CefMessageRouterHandlerAdapter;
+import org.cef.handler.CefRequestHandler;
 
+import com.intellij.ide.BrowserUtil;
 import com.intellij.openapi.Disposable;
-import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.ui.jcef.JBCefBrowser;
 import com.intellij.ui.jcef.JBCefClient;
 
@@ -30,29 +40,41 @@ import com.intellij.ui.jcef.JBCefClient;
  * @date 2021-02-21 12:11
  */
 public class JcefBrowser implements BrowserView, Disposable {
+    private static final AtomicInteger ATTACHED_TRANSPORTS = new AtomicInteger();
 
     private JBCefBrowser browser;
     private CefBrowser cefBrowser;
-    private CefClient cefClient;
-    private CefMessageRouter cefRouter;
+    private JBCefClient jbCefClient;
+    private CefLifeSpanHandler lifeSpanHandler;
+    private CefDisplayHandler displayHandler;
+    private CefLoadHandler loadHandler;
+    private CefRequestHandler requestHandler;
+    private final QueryGate queryGate = new QueryGate();
+    private final PushChannel pushChannel;
+    private final AtomicLong dropSequence = new AtomicLong();
     private Consumer<String> urlChangedConsumer;
     private Consumer<Double> progressChangedConsumer;
 
     JcefBrowser() {
-        browser = new JBCefBrowser("about:blank");
+        browser = BrowserPool.getInstance().checkout();
         cefBrowser = browser.getCefBrowser();
-        cefClient = browser.getJBCefClient().getCefClient();
-        JBCefClient jbCefClient = browser.getJBCefClient();
+        jbCefClient = browser.getJBCefClient();
+        pushChannel = new PushChannel(this::executeScript);
+        BrowserPool.getInstance().setQueryHandler(cefBrowser, queryGate);
 
-        jbCefClient.addLifeSpanHandler(new CefLifeSpanHandlerAdapter() {
+        // the client is shared with other projects' browsers, so every handler is scoped to ours
+        jbCefClient.addLifeSpanHandler(lifeSpanHandler = new CefLifeSpanHandlerAdapter() {
             @Override
             public boolean onBeforePopup(CefBrowser browser, CefFrame frame, String targetUrl, String targetFrameName) {
-                load(targetUrl);
+                // never navigate the bridge browser away from the agent app: links open outside the IDE
+                if (targetUrl != null && (targetUrl.startsWith("http://") || targetUrl.startsWith("https://"))) {
+                    BrowserUtil.browse(targetUrl);
+                }
                 return true;
             }
         }, cefBrowser);
 
-        jbCefClient.addDisplayHandler(new CefDisplayHandlerAdapter() {
+        jbCefClient.addDisplayHandler(displayHandler = new CefDisplayHandlerAdapter() {
             @Override
             public void onAddressChange(CefBrowser browser, CefFrame frame, String url) {
                 if (Objects.nonNull(urlChangedConsumer)) {
@@ -61,13 +83,44 @@ public class JcefBrowser implements BrowserView, Disposable {
             }
         }, cefBrowser);
 
-        jbCefClient.addLoadHandler(new CefLoadHandlerAdapter() {
+        AssetCache assetCache = AssetCache.getInstance();
+        if (assetCache.isEnabled()) {
+            jbCefClient.addRequestHandler(requestHandler = new AssetRequestHandler(assetCache), cefBrowser);
+        }
+
+        jbCefClient.addLoadHandler(loadHandler = new CefLoadHandlerAdapter() {
             private volatile double progress = 0.0;
+            private volatile AgentJfrEvents.PageLoad pageLoad;
+
+            @Override
+            public void onLoadStart(CefBrowser browser, CefFrame frame, CefRequest.TransitionType transitionType) {
+                if (frame.isMain()) {
+                    AgentJfrEvents.PageLoad event = new AgentJfrEvents.PageLoad();
+                    event.begin();
+                    pageLoad = event;
+                }
+            }
+
+            private void endPageLoad(CefFrame frame, int httpStatus, String error) {
+                AgentJfrEvents.PageLoad event = pageLoad;
+                if (event == null || !frame.isMain()) {
+                    return;
+                }
+                pageLoad = null;
+                if (event.shouldCommit()) {
+                    event.url = frame.getURL();
+                    event.httpStatus = httpStatus;
+                    event.error = error;
+                    event.commit();
+                }
+            }
 
             @Override
             public void onLoadingStateChange(CefBrowser browser, boolean isLoading, boolean canGoBack,
                     boolean canGoForward) {
                 super.onLoadingStateChange(browser, isLoading, canGoBack, canGoForward);
+                String url = browser.getURL();
+                pushChannel.setPageReady(!isLoading && url != null && !url.startsWith("about:"));
                 if (Objects.nonNull(progressChangedConsumer)) {
                     synchronized (this) {
                         if (isLoading) {
@@ -84,6 +137,7 @@ public class JcefBrowser implements BrowserView, Disposable {
 
             @Override
             public void onLoadError(CefBrowser browser, CefFrame frame, ErrorCode errorCode, String errorText, String failedUrl) {
+                endPageLoad(frame, 0, errorText);
                 if (Objects.nonNull(progressChangedConsumer)) {
                     synchronized (this) {
                         progress = 0;
@@ -94,6 +148,7 @@ public class JcefBrowser implements BrowserView, Disposable {
 
             @Override
             public void onLoadEnd(CefBrowser browser, CefFrame frame, int httpStatusCode) {
+                endPageLoad(frame, httpStatusCode, null);
                 if (Objects.nonNull(progressChangedConsumer)) {
                     synchronized (this) {
                         progress = 0;
@@ -111,18 +166,14 @@ public class JcefBrowser implements BrowserView, Disposable {
     }
 
     @Override
-    public void addJSHandler(JsTransport instance) {
-        // Register handler for JS→Java messages
-        if (cefRouter != null) {
-            cefClient.removeMessageRouter(cefRouter);
-            cefRouter.dispose();
-        }
-        cefRouter = CefMessageRouter.create();
-        cefClient.addMessageRouter(cefRouter);
-        cefRouter.addHandler(instance, true);
+    public PushChannel getPushChannel() {
+        return pushChannel;
+    }
 
-        // Attach router to browser
-        browser.getJBCefClient().getCefClient().addMessageRouter(cefRouter);
+    @Override
+    public void addJSHandler(JsTransport instance) {
+        // Register handler for JS→Java messages; the browser keeps one query handler for its whole life
+        queryGate.setTransport(instance);
     }
 
     @Override
@@ -185,41 +236,131 @@ public class JcefBrowser implements BrowserView, Disposable {
     }
 
     public void onHide() {
-        if (cefRouter != null) {
-            cefClient.removeMessageRouter(cefRouter);
-            cefRouter.dispose();
-        }
-
-        executeScript("onPluginHide();");
+        // deliver the hide event before new queries are gated off
+        pushChannel.push("onPluginHide", null, "visibility");
+        pushChannel.flush();
+        queryGate.open = false;
     }
 
     @Override
     public void onShow() {
-        executeScript("onPluginShow();");
+        queryGate.open = true;
+        pushChannel.push("onPluginShow", null, "visibility");
     }
 
     @Override
     public void dispose() {
         onHide();
-        cefClient.removeLoadHandler();
-        cefBrowser.stopLoad();
-        cefBrowser.close(false);
-        Disposer.dispose(browser);
+        queryGate.setTransport(null);
+        BrowserPool.getInstance().removeQueryHandler(cefBrowser);
+        pushChannel.unsubscribeAll();
+        jbCefClient.removeLifeSpanHandler(lifeSpanHandler, cefBrowser);
+        jbCefClient.removeDisplayHandler(displayHandler, cefBrowser);
+        jbCefClient.removeLoadHandler(loadHandler, cefBrowser);
+        if (requestHandler != null) {
+            jbCefClient.removeRequestHandler(requestHandler, cefBrowser);
+        }
+        BrowserPool.getInstance().release(browser);
     }
 
+    /**
+     * Sends {@code @file} references for the dropped files. A subscribed UI receives them as
+     * {@code onFilesDragChunk} events of {@link FilesDragMessage#CHUNK_SIZE} paths each
+     * ({@code {"dropId", "chunk", "chunks", "files"}}) so it can render them incrementally;
+     * otherwise the legacy {@code onFilesDrag(message)} call is used.
+     */
     public void onFilesDrag(ArrayList<File> files, String basePath) {
-        StringBuilder message = new StringBuilder();
-        Path base = Paths.get(basePath).normalize();
-        for (int i = 0; i < files.size(); i++) {
-            Path p = Paths.get(files.get(i).getPath()).normalize();
+        List<File> snapshot = new ArrayList<>(files);
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            AgentJfrEvents.FilesDrag event = new AgentJfrEvents.FilesDrag();
+            event.begin();
+            List<String> paths = FilesDragMessage.relativize(snapshot, basePath);
+            if (paths.isEmpty()) {
+                commitFilesDrag(event, snapshot.size(), 0, 0);
+                return;
+            }
 
-            if (p.startsWith(base)) {
-                message.append("@file ").append(base.relativize(p).toString().replace('\\', '/')).append(" ");
+            if (!pushChannel.isSubscribed()) {
+                pushChannel.push("onFilesDrag", new JsonPrimitive(FilesDragMessage.toLegacyMessage(paths)));
+                commitFilesDrag(event, snapshot.size(), paths.size(), 1);
+                return;
             }
+
+            long dropId = dropSequence.incrementAndGet();
+            List<List<String>> chunks = FilesDragMessage.chunks(paths);
+            for (int i = 0; i < chunks.size(); i++) {
+                JsonArray chunkFiles = new JsonArray(chunks.get(i).size());
+                for (String path : chunks.get(i)) {
+                    chunkFiles.add(path);
+                }
+                JsonObject data = new JsonObject();
+                data.addProperty("dropId", dropId);
+                data.addProperty("chunk", i);
+                data.addProperty("chunks", chunks.size());
+                data.add("files", chunkFiles);
+                pushChannel.push("onFilesDragChunk", data);
+            }
+            commitFilesDrag(event, snapshot.size(), paths.size(), chunks.size());
+        });
+    }
+
+    private static void commitFilesDrag(AgentJfrEvents.FilesDrag event, int files, int paths, int chunks) {
+        if (event.shouldCommit()) {
+            event.files = files;
+            event.paths = paths;
+            event.chunks = chunks;
+            event.commit();
         }
+    }
+
+    static int attachedTransportCount() {
+        return ATTACHED_TRANSPORTS.get();
+    }
 
-        if (!message.isEmpty()) {
-            executeScript("onFilesDrag('" + message + "')");
+    /**
+     * The browser's only query handler. It forwards to the current {@link JsTransport}, which can be
+     * swapped without touching the router, and rejects new queries while the tool window is hidden.
+     * Queries already in flight, including the push channel subscription, are kept across hide/show.
+     */
+    private static final class QueryGate extends CefMessageRouterHandlerAdapter {
+        private volatile JsTransport transport;
+        volatile boolean open = true;
+
+        synchronized void setTransport(JsTransport next) {
+            JsTransport previous = transport;
+            if (previous == next) {
+                return;
+            }
+            transport = next;
+            if (previous != null) {
+                previous.cancelPending();
+                ATTACHED_TRANSPORTS.decrementAndGet();
+            }
+            if (next != null) {
+                ATTACHED_TRANSPORTS.incrementAndGet();
+            }
+        }
+
+        @Override
+        public boolean onQuery(CefBrowser browser, CefFrame frame, long queryId, String request,
+                               boolean persistent, CefQueryCallback callback) {
+            JsTransport current = transport;
+            if (current == null) {
+                return false;
+            }
+            if (!open) {
+                callback.failure(4, "plugin_hidden");
+                return true;
+            }
+            return current.onQuery(browser, frame, queryId, request, persistent, callback);
+        }
+
+        @Override
+        public void onQueryCanceled(CefBrowser browser, CefFrame frame, long queryId) {
+            JsTransport current = transport;
+            if (current != null) {
+                current.onQueryCanceled(browser, frame, queryId);
+            }
         }
     }
 }
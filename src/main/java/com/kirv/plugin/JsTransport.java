@@ -1,31 +1,81 @@
 package com.kirv.plugin;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.fileChooser.FileChooserDescriptor;
 import com.intellij.openapi.fileChooser.FileChooserDescriptorFactory;
 import com.intellij.openapi.fileChooser.FileChooserDialog;
 import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.ui.JBColor;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import org.cef.browser.CefBrowser;
 import org.cef.browser.CefFrame;
 import org.cef.callback.CefQueryCallback;
 import org.cef.handler.CefMessageRouterHandlerAdapter;
 
 import java.io.*;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.IntSupplier;
 
 import javax.swing.*;
 
 public class JsTransport extends CefMessageRouterHandlerAdapter {
+    private static final Logger LOG = Logger.getInstance(JsTransport.class);
+    private static final int MAX_PARALLEL_COMMANDS = 4;
+    // commands run off the CEF thread: file lookups and VFS refreshes must not stall the browser
+    private static final ExecutorService EXECUTOR =
+            AppExecutorUtil.createBoundedApplicationPoolExecutor("Agent bridge", MAX_PARALLEL_COMMANDS);
+
+    // opcodes recorded in BridgeMetrics under their own name; anything else the page sends is "unknown"
+    static final Set<String> OP_CODES = Set.of(
+            "jide_open_file", "jide_open_diff_file", "jide_find_files", "jide_read_files", "jide_apply_patch",
+            "jide_upload_chunk", "jide_open_proposed_diff", "jide_get_outline", "jide_search", "jide_run",
+            "jide_get_problems", "jide_get_context", "jide_metrics", "jide_status", "jide_choose_file");
+
+    private static final int DEFAULT_FIND_FILES_LIMIT = 20;
+    private static final int MAX_FIND_FILES_LIMIT = 200;
+    private static final int DEFAULT_SEARCH_LIMIT = 200;
+    private static final int MAX_SEARCH_LIMIT = 2000;
+    private static final int READ_CHUNK_CHARS = 256 * 1024;
+    private static final int MAX_INLINE_FILE_CHARS = 4 * 1024 * 1024;
+
     private final Project project;
     private final JLabel statusLabel;
+    private final PushChannel pushChannel;
+    private final IntSupplier agentPort;
+    private final Map<Long, BridgeQuery> pendingQueries = new ConcurrentHashMap<>();
+    private final BridgeMetrics metrics;
 
-    public JsTransport(Project project, JLabel statusLabel) {
+    /**
+     * @param agentPort the configured {@code HTTP_PORT}; only pages served from
+     *                  {@code http://localhost:<port>} may use the bridge
+     */
+    public JsTransport(Project project, JLabel statusLabel, PushChannel pushChannel, IntSupplier agentPort) {
         this.project = project;
         this.statusLabel = statusLabel;
+        this.pushChannel = pushChannel;
+        this.agentPort = agentPort;
+        this.metrics = BridgeMetrics.getInstance(project);
     }
 
     @Override
@@ -37,82 +87,594 @@ public class JsTransport extends CefMessageRouterHandlerAdapter {
                            CefQueryCallback callback) {
 
         //System.out.println("JS called with: " + request + ", for project: " + project.getBasePath());
+        // the bridge can edit files and start processes: only the agent app may use it
+        String frameUrl = frame != null ? frame.getURL() : null;
+        if (!isAgentOrigin(frameUrl, agentPort.getAsInt())) {
+            LOG.warn("Rejected bridge query from " + frameUrl);
+            callback.failure(5, "forbidden_origin");
+            return true;
+        }
+
+        if ("jide_subscribe".equals(request)) {
+            if (!persistent) {
+                callback.failure(1, "subscription_requires_persistent_query");
+                return true;
+            }
+            pushChannel.subscribe(queryId, callback);
+            return true;
+        }
+
+        BridgeQuery query = new BridgeQuery(queryId, persistent, callback);
+        if (request != null && request.startsWith("jide_status")) {
+            // cheap and order-sensitive: keep it on the CEF thread so updates are applied in order
+            dispatch(cefBrowser, request, query);
+            return true;
+        }
+
+        ExecutorService executor = request != null && request.startsWith("jide_run") ? ProcessRunner.EXECUTOR : EXECUTOR;
+        pendingQueries.put(queryId, query);
+        metrics.enqueued();
+        try {
+            query.setFuture(executor.submit(() -> dispatch(cefBrowser, request, query)));
+        } catch (RejectedExecutionException e) {
+            removePending(queryId);
+            query.failure(3, "bridge_busy");
+        }
+
+        return true;
+    }
+
+    /**
+     * Whether {@code url} belongs to the agent app, i.e. {@code http://localhost:<port>}.
+     */
+    static boolean isAgentOrigin(String url, int port) {
+        if (url == null) {
+            return false;
+        }
+        try {
+            URI uri = new URI(url);
+            return "http".equals(uri.getScheme()) && "localhost".equals(uri.getHost()) && uri.getPort() == port;
+        } catch (URISyntaxException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void onQueryCanceled(CefBrowser cefBrowser, CefFrame frame, long queryId) {
+        pushChannel.unsubscribe(queryId);
+
+        BridgeQuery query = removePending(queryId);
+        if (query != null) {
+            query.cancel();
+        }
+    }
+
+    private BridgeQuery removePending(long queryId) {
+        BridgeQuery query = pendingQueries.remove(queryId);
+        if (query != null) {
+            metrics.dequeued();
+        }
+        return query;
+    }
+
+    /**
+     * Cancels every command still running, e.g. when this transport is detached from its browser.
+     */
+    void cancelPending() {
+        for (Long queryId : pendingQueries.keySet()) {
+            BridgeQuery query = removePending(queryId);
+            if (query != null) {
+                query.failure(4, "transport_detached");
+                query.cancel();
+            }
+        }
+    }
+
+    private void dispatch(CefBrowser cefBrowser, String request, BridgeQuery query) {
         try {
-            if (request != null && request.startsWith("jide_choose_file")) {
+            query.checkCanceled();
+            if (BridgeCommand.isBatch(request)) {
+                query.success(onBatch(cefBrowser, request, query));
+            } else if (request != null && request.startsWith("jide_choose_file")) {
                 handleChooseFile(cefBrowser);
-                callback.success("pending");
-                return true;
+                query.success("pending");
+            } else {
+                query.success(execute(BridgeCommand.parse(request), query));
             }
-            callback.success(onCallback(request));
         } catch (IllegalArgumentException e) {
-            callback.failure(1, e.getMessage());
+            query.failure(1, e.getMessage());
+        } catch (BridgeQuery.QueryCanceledException | ProcessCanceledException e) {
+            // the UI has already given up on this query
+        } catch (RuntimeException e) {
+            LOG.warn("Bridge command failed: " + request, e);
+            query.failure(2, "internal_error");
+        } finally {
+            removePending(query.queryId());
         }
+    }
 
-        return true;
+    /**
+     * Runs every command of a batch in order and returns a JSON array with one
+     * {@code {"ok": true, "result": ...}} or {@code {"ok": false, "error": ...}} entry per command.
+     * A failing command, including an unexpected one reported as {@code internal_error}, does not
+     * affect the others; only cancellation of the query stops the batch.
+     */
+    public String onBatch(CefBrowser cefBrowser, String request, BridgeQuery query) {
+        JsonArray results = new JsonArray();
+        for (BridgeCommand command : BridgeCommand.parseBatch(request)) {
+            query.checkCanceled();
+            JsonObject result = new JsonObject();
+            try {
+                if (command == null) {
+                    throw new IllegalArgumentException("wrong_command");
+                }
+                if (command.opCode().equals("jide_choose_file")) {
+                    handleChooseFile(cefBrowser);
+                    result.addProperty("result", "pending");
+                } else {
+                    result.addProperty("result", execute(command, query));
+                }
+                result.addProperty("ok", true);
+            } catch (IllegalArgumentException e) {
+                result.addProperty("ok", false);
+                result.addProperty("error", e.getMessage());
+            } catch (BridgeQuery.QueryCanceledException | ProcessCanceledException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                LOG.warn("Bridge command failed in batch: " + command.opCode(), e);
+                result.addProperty("ok", false);
+                result.addProperty("error", "internal_error");
+            }
+            results.add(result);
+        }
+        return results.toString();
     }
 
     public String onCallback(String command) {
-        // Check if command starts with file open prefix
-        if (command == null) {
-            throw new IllegalArgumentException("wrong_command");
-        }
+        return execute(BridgeCommand.parse(command), null);
+    }
 
-        String[] commandAndArgs = command.split("/\\/");
-        if (commandAndArgs.length == 0) {
-            throw new IllegalArgumentException("wrong_command_arguments");
+    private String execute(BridgeCommand command, BridgeQuery query) {
+        AgentJfrEvents.BridgeCall event = new AgentJfrEvents.BridgeCall();
+        event.begin();
+        long start = System.nanoTime();
+        String result = null;
+        boolean failed = true;
+        try {
+            result = executeCommand(command, query);
+            failed = false;
+            return result;
+        } catch (BridgeQuery.QueryCanceledException | ProcessCanceledException e) {
+            failed = false;
+            throw e;
+        } finally {
+            metrics.record(OP_CODES.contains(command.opCode()) ? command.opCode() : BridgeMetrics.UNKNOWN_OP, start, failed);
+            if (event.shouldCommit()) {
+                long requestChars = 0;
+                for (String arg : command.args()) {
+                    requestChars += arg.length();
+                }
+                event.opCode = command.opCode();
+                event.argCount = command.argCount();
+                event.requestChars = requestChars;
+                event.responseChars = result == null ? 0 : result.length();
+                event.failed = failed;
+                event.commit();
+            }
         }
+    }
 
-        String opCode = commandAndArgs[0];
+    private String executeCommand(BridgeCommand command, BridgeQuery query) {
+        String opCode = command.opCode();
 
-        if (opCode.equals("jide_open_file") || opCode.equals("jide_open_diff_file") && commandAndArgs.length == 2) {
-            String filePath = commandAndArgs[1];
+        if (opCode.equals("jide_open_file") || opCode.equals("jide_open_diff_file") && command.argCount() == 1) {
+            String filePath = command.arg(0);
 
             VirtualFile vFile = getProjectFile(filePath);
             IdeInstanceService.getInstance(project).openFile(vFile);
         } else if (opCode.equals("jide_open_diff_file")) {
-            String filePath = commandAndArgs[1];
-            String sourceFilePath = commandAndArgs[2];
+            String filePath = command.arg(0);
+            String sourceFilePath = command.arg(1);
 
             VirtualFile left = getProjectFile(sourceFilePath);
             VirtualFile right = getProjectFile(filePath);
 
             IdeInstanceService.getInstance(project).openDiffFiles(left, right);
+        } else if (opCode.equals("jide_find_files")) {
+            return findFiles(command);
+        } else if (opCode.equals("jide_read_files")) {
+            return readFiles(command, query);
+        } else if (opCode.equals("jide_apply_patch")) {
+            return applyPatch(command);
+        } else if (opCode.equals("jide_upload_chunk")) {
+            return uploadChunk(command);
+        } else if (opCode.equals("jide_open_proposed_diff")) {
+            return openProposedDiff(command);
+        } else if (opCode.equals("jide_get_outline")) {
+            return getOutline(command, query);
+        } else if (opCode.equals("jide_search")) {
+            return search(command, query);
+        } else if (opCode.equals("jide_run")) {
+            return run(command, query);
+        } else if (opCode.equals("jide_get_problems")) {
+            return getProblems(command);
+        } else if (opCode.equals("jide_get_context")) {
+            return EditorContextService.getInstance(project).getContext();
+        } else if (opCode.equals("jide_metrics")) {
+            return metrics.toJson().toString();
         } else if (opCode.equals("jide_status")) {
-            String statusMessage = commandAndArgs[1];
-            String statusType = commandAndArgs[2];
-            statusLabel.setText(statusMessage);
-            if (statusType.equals("disconnected")) {
-                statusLabel.setForeground(JBColor.RED);
+            String statusMessage = command.arg(0);
+            String statusType = command.arg(1);
+            ApplicationManager.getApplication().invokeLater(() -> {
+                statusLabel.setText(statusMessage);
+                if (statusType.equals("disconnected")) {
+                    statusLabel.setForeground(JBColor.RED);
+                }
+                else {
+                    statusLabel.setForeground(UIManager.getColor("Label.foreground"));
+                }
+            }, ModalityState.any());
+        }
+
+        // Default response for other commands
+        return "success";
+    }
+
+    /**
+     * {@code jide_find_files//query[//limit]}: prefix and fuzzy lookup of project-relative paths.
+     */
+    private String findFiles(BridgeCommand command) {
+        String query = command.arg(0);
+        int limit = DEFAULT_FIND_FILES_LIMIT;
+        if (command.argCount() > 1) {
+            try {
+                limit = Math.max(1, Math.min(MAX_FIND_FILES_LIMIT, Integer.parseInt(command.arg(1).trim())));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("wrong_command_arguments");
+            }
+        }
+
+        ProjectPathIndex index = ProjectPathIndex.getInstance(project);
+        JsonArray files = new JsonArray();
+        for (String path : index.find(query, limit)) {
+            files.add(path);
+        }
+
+        JsonObject result = new JsonObject();
+        result.addProperty("ready", index.isReady());
+        result.addProperty("indexed", index.size());
+        result.add("files", files);
+        return result.toString();
+    }
+
+    /**
+     * {@code jide_read_files//path1//path2...}: current IDE contents of many files.
+     * <p>
+     * A regular query gets one {@code {"files": [...]}} reply. A persistent query streams each file
+     * as {@code {"path", "offset", "data", "last", ...}} chunk frames and ends with {@code {"done": true}}.
+     */
+    private String readFiles(BridgeCommand command, BridgeQuery query) {
+        if (command.argCount() == 0) {
+            throw new IllegalArgumentException("wrong_command_arguments");
+        }
+        boolean streaming = query != null && query.isPersistent();
+
+        JsonArray files = new JsonArray();
+        for (String path : command.args()) {
+            if (query != null) {
+                query.checkCanceled();
+            }
+
+            JsonObject entry = new JsonObject();
+            entry.addProperty("path", path);
+            FileContentReader.Content content;
+            try {
+                content = FileContentReader.read(project, getProjectFile(path));
+            } catch (IllegalArgumentException e) {
+                entry.addProperty("error", e.getMessage());
+                if (streaming) {
+                    query.emit(entry.toString());
+                } else {
+                    files.add(entry);
+                }
+                continue;
+            }
+
+            entry.addProperty("source", content.source);
+            entry.addProperty("modificationStamp", content.modificationStamp);
+            entry.addProperty("length", content.text.length());
+            if (!streaming) {
+                if (content.text.length() > MAX_INLINE_FILE_CHARS) {
+                    entry.addProperty("error", "file_too_large_use_persistent_query");
+                } else {
+                    entry.addProperty("content", content.text);
+                }
+                files.add(entry);
+                continue;
             }
-            else {
-                statusLabel.setForeground(UIManager.getColor("Label.foreground"));
+
+            String text = content.text;
+            int offset = 0;
+            do {
+                query.checkCanceled();
+                int end = Math.min(text.length(), offset + READ_CHUNK_CHARS);
+                JsonObject chunk = entry.deepCopy();
+                chunk.addProperty("offset", offset);
+                chunk.addProperty("data", text.substring(offset, end));
+                chunk.addProperty("last", end == text.length());
+                query.emit(chunk.toString());
+                offset = end;
+            } while (offset < text.length());
+        }
+
+        JsonObject result = new JsonObject();
+        if (streaming) {
+            result.addProperty("done", true);
+        } else {
+            result.add("files", files);
+        }
+        return result.toString();
+    }
+
+    /**
+     * {@code jide_apply_patch//diff}: applies unified diffs to IDE documents as one undo step. In this
+     * legacy form everything after the opcode is one argument, so diffs may contain {@code //}; several
+     * arguments are sent as {@code {"op": "jide_apply_patch", "args": [diff1, diff2]}} in a batch.
+     * Each argument is either a unified diff (one or many files) or
+     * {@code {"diff": "...", "modificationStamp": 123}} to reject the patch if the file changed since.
+     */
+    private String applyPatch(BridgeCommand command) {
+        if (command.argCount() == 0) {
+            throw new IllegalArgumentException("wrong_command_arguments");
+        }
+
+        List<PatchApplier.Request> requests = new ArrayList<>();
+        for (String arg : command.args()) {
+            String diff = arg;
+            Long expectedStamp = null;
+            if (arg.startsWith("{")) {
+                try {
+                    JsonObject object = JsonParser.parseString(arg).getAsJsonObject();
+                    diff = object.get("diff").getAsString();
+                    if (object.has("modificationStamp")) {
+                        expectedStamp = object.get("modificationStamp").getAsLong();
+                    }
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException("wrong_command_arguments");
+                }
+            }
+            for (UnifiedDiff.FilePatch patch : UnifiedDiff.parse(diff)) {
+                requests.add(new PatchApplier.Request(patch, expectedStamp));
             }
         }
 
-        // Default response for other commands
+        return new PatchApplier(project, this::getProjectFile).apply(requests);
+    }
+
+    /**
+     * {@code jide_upload_chunk} with args {@code [uploadId, index, text]}: stages one chunk of a large
+     * proposed content. Send it in the {@code {"op", "args"}} form since the text may contain {@code //}.
+     */
+    private String uploadChunk(BridgeCommand command) {
+        int index;
+        try {
+            index = Integer.parseInt(command.arg(1).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("wrong_command_arguments");
+        }
+        int received = ProposedContentUploads.getInstance(project).addChunk(command.arg(0), index, command.arg(2));
+
+        JsonObject result = new JsonObject();
+        result.addProperty("uploadId", command.arg(0));
+        result.addProperty("received", received);
+        return result.toString();
+    }
+
+    /**
+     * {@code jide_open_proposed_diff}: each argument is {@code {"path", "content"}}, {@code {"path", "patch"}}
+     * or {@code {"path", "upload"}} (a finished {@code jide_upload_chunk} upload). Shows the live
+     * documents against the proposed text; several files open as one diff chain.
+     */
+    private String openProposedDiff(BridgeCommand command) {
+        if (command.argCount() == 0) {
+            throw new IllegalArgumentException("wrong_command_arguments");
+        }
+
+        List<IdeInstanceService.ProposedChange> changes = new ArrayList<>();
+        for (String arg : command.args()) {
+            JsonObject object;
+            String path;
+            try {
+                object = JsonParser.parseString(arg).getAsJsonObject();
+                path = object.get("path").getAsString();
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("wrong_command_arguments");
+            }
+
+            VirtualFile file = null;
+            try {
+                file = getProjectFile(path);
+            } catch (IllegalArgumentException e) {
+                // a proposal for a file that does not exist yet is shown against empty content
+            }
+
+            String proposedText;
+            if (object.has("content")) {
+                proposedText = object.get("content").getAsString();
+            } else if (object.has("upload")) {
+                proposedText = ProposedContentUploads.getInstance(project).take(object.get("upload").getAsString());
+            } else if (object.has("patch")) {
+                String currentText = file == null ? "" : FileContentReader.read(project, file).text;
+                proposedText = UnifiedDiff.apply(currentText, UnifiedDiff.parse(object.get("patch").getAsString()).get(0));
+            } else {
+                throw new IllegalArgumentException("wrong_command_arguments");
+            }
+            changes.add(new IdeInstanceService.ProposedChange(path, file, proposedText));
+        }
+
+        IdeInstanceService.getInstance(project).openProposedDiffs(changes);
         return "success";
     }
 
-    private VirtualFile getProjectFile(String filePath) {
-        if (filePath.isEmpty()) {
-            throw new IllegalArgumentException("empty_file_path");
+    /**
+     * {@code jide_get_outline//path1//path2...}: structure skeletons of many files, built in parallel.
+     * Replies {@code {"files": [{"path", "stamp", "outline": [...]} | {"path", "error"}]}}.
+     */
+    private String getOutline(BridgeCommand command, BridgeQuery query) {
+        if (command.argCount() == 0) {
+            throw new IllegalArgumentException("wrong_command_arguments");
+        }
+
+        FileOutlineService outlines = FileOutlineService.getInstance(project);
+        List<Future<JsonObject>> futures = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        for (String path : command.args()) {
+            try {
+                futures.add(outlines.outlineAsync(getProjectFile(path)));
+                errors.add(null);
+            } catch (IllegalArgumentException e) {
+                futures.add(null);
+                errors.add(e.getMessage());
+            }
         }
 
-        // Convert to absolute path if relative
-        File file = new File(filePath);
-        if (!file.isAbsolute()) {
-            file = new File(project.getBasePath(), filePath);
+        JsonArray files = new JsonArray();
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                if (query != null) {
+                    query.checkCanceled();
+                }
+                JsonObject entry = new JsonObject();
+                entry.addProperty("path", command.arg(i));
+                if (futures.get(i) == null) {
+                    entry.addProperty("error", errors.get(i));
+                } else {
+                    // cached outlines are shared, so copy before adding the path
+                    for (Map.Entry<String, JsonElement> property : futures.get(i).get().deepCopy().entrySet()) {
+                        entry.add(property.getKey(), property.getValue());
+                    }
+                }
+                files.add(entry);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BridgeQuery.QueryCanceledException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ProcessCanceledException) {
+                throw new BridgeQuery.QueryCanceledException();
+            }
+            throw new IllegalStateException("outline_failed", e.getCause());
+        } finally {
+            for (Future<JsonObject> future : futures) {
+                if (future != null) {
+                    future.cancel(true);
+                }
+            }
         }
 
-        if (!file.exists()) {
-            throw new IllegalArgumentException("file_not_found: " + file.getAbsolutePath() + "\n(" + project.getBasePath() + ")\n[" + filePath + "]");
+        JsonObject result = new JsonObject();
+        result.add("files", files);
+        return result.toString();
+    }
+
+    /**
+     * {@code jide_search//mode//text[//limit[//caseSensitive]]} with mode {@code text}, {@code word} or
+     * {@code symbol}. A persistent query streams {@code {"matches": [...], "dumb"}} pages as they are
+     * found and ends with {@code {"done": true, "total", "truncated", "dumb"}}; cancelling the query
+     * stops the search. A regular query gets everything in one {@code {"matches": [...], "total", ...}} reply.
+     */
+    private String search(BridgeCommand command, BridgeQuery query) {
+        CodeSearch.Mode mode;
+        try {
+            mode = CodeSearch.Mode.valueOf(command.arg(0).trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown_search_mode: " + command.arg(0));
+        }
+        String text = command.arg(1);
+        if (text.isEmpty()) {
+            throw new IllegalArgumentException("empty_search_text");
+        }
+        int limit = DEFAULT_SEARCH_LIMIT;
+        if (command.argCount() > 2) {
+            try {
+                limit = Math.max(1, Math.min(MAX_SEARCH_LIMIT, Integer.parseInt(command.arg(2).trim())));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("wrong_command_arguments");
+            }
         }
+        boolean caseSensitive = command.argCount() > 3 && Boolean.parseBoolean(command.arg(3).trim());
 
-        // Open file in IntelliJ editor
-        VirtualFile vFile = LocalFileSystem.getInstance().refreshAndFindFileByPath(file.getAbsolutePath());
-        if (vFile == null) throw new IllegalArgumentException("File not found in VFS: " + file.getAbsolutePath());
+        boolean streaming = query != null && query.isPersistent();
+        JsonArray matches = new JsonArray();
+        JsonObject result = new CodeSearch(project, query, mode, text, caseSensitive, limit, frame -> {
+            if (streaming) {
+                query.emit(frame.toString());
+            } else {
+                matches.addAll(frame.getAsJsonArray("matches"));
+            }
+        }).run();
 
-        return vFile;
+        if (streaming) {
+            result.addProperty("done", true);
+        } else {
+            result.add("matches", matches);
+        }
+        return result.toString();
+    }
+
+    /**
+     * {@code jide_run//executable//arg1//arg2...}: runs a process in the project directory. A persistent
+     * query streams coalesced {@code {"stdout"?, "stderr"?, "dropped"?}} frames and ends with
+     * {@code {"done": true, "exitCode", "durationMs"}}; cancelling the query destroys the process.
+     * A regular query gets {@code {"exitCode", "durationMs", "stdout", "stderr", "dropped"}} with the
+     * output tail at the end.
+     */
+    private String run(BridgeCommand command, BridgeQuery query) {
+        if (command.argCount() == 0 || command.arg(0).isBlank()) {
+            throw new IllegalArgumentException("wrong_command_arguments");
+        }
+
+        boolean streaming = query != null && query.isPersistent();
+        JsonObject result = new ProcessRunner(project, query, command.args(),
+                streaming ? frame -> query.emit(frame.toString()) : null).run();
+        if (streaming) {
+            result.addProperty("done", true);
+        }
+        return result.toString();
+    }
+
+    /**
+     * {@code jide_get_problems//path1//path2...}: current daemon errors and warnings of the files, which
+     * are then tracked for {@code onProblemsChanged} pushes. Replies
+     * {@code {"files": [{"path", "stamp", "problems": [...]} | {"path", "error"}]}}.
+     */
+    private String getProblems(BridgeCommand command) {
+        if (command.argCount() == 0) {
+            throw new IllegalArgumentException("wrong_command_arguments");
+        }
+
+        ProblemsFeed feed = ProblemsFeed.getInstance(project);
+        JsonArray files = new JsonArray();
+        for (String path : command.args()) {
+            JsonObject entry = new JsonObject();
+            entry.addProperty("path", path);
+            try {
+                for (Map.Entry<String, JsonElement> field : feed.getProblems(getProjectFile(path)).entrySet()) {
+                    entry.add(field.getKey(), field.getValue());
+                }
+            } catch (IllegalArgumentException e) {
+                entry.addProperty("error", e.getMessage());
+            }
+            files.add(entry);
+        }
+
+        JsonObject result = new JsonObject();
+        result.add("files", files);
+        return result.toString();
+    }
+
+    private VirtualFile getProjectFile(String filePath) {
+        return VirtualFileResolver.getInstance(project).resolve(filePath);
     }
 
     private void handleChooseFile(CefBrowser cefBrowser) {
@@ -127,13 +689,9 @@ public class JsTransport extends CefMessageRouterHandlerAdapter {
             VirtualFile[] chosen = dialog.choose(project);
 
             if (chosen.length > 0) {
-                String path = chosen[0].getPath()
-                        .replace("\\", "\\\\")
-                        .replace("'", "\\'");
-                String js = "onFileChosen('" + path + "');";
-                cefBrowser.executeJavaScript(js, null, 0);
+                pushChannel.push("onFileChosen", new JsonPrimitive(chosen[0].getPath()));
             } else {
-                cefBrowser.executeJavaScript("onFileChosen(null);", null, 0);
+                pushChannel.push("onFileChosen", JsonNull.INSTANCE);
             }
         }, ModalityState.defaultModalityState());
     }
@@ -0,0 +1,362 @@
+package com.kirv.plugin;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.ReadonlyStatusHandler;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Applies unified diffs for many files directly to their {@link Document}s.
+ * <p>
+ * All patches are computed first; if any file conflicts (hunk mismatch, stale modification stamp,
+ * read-only file) nothing is changed. Several patches for the same file are applied in order, each
+ * to the result of the previous one. Otherwise every document is updated inside one
+ * {@link WriteCommandAction}, so the whole change is a single undo step, and the documents are
+ * saved together at the end.
+ */
+final class PatchApplier {
+    private static final String COMMAND_NAME = "Agent: Apply Patch";
+
+    private final Project project;
+    private final Function<String, VirtualFile> resolver;
+
+    /**
+     * @param resolver resolves an existing project file by bridge path, throwing
+     *                 {@link IllegalArgumentException} if it does not exist
+     */
+    PatchApplier(Project project, Function<String, VirtualFile> resolver) {
+        this.project = project;
+        this.resolver = resolver;
+    }
+
+    static final class Request {
+        final UnifiedDiff.FilePatch patch;
+        final Long expectedStamp;
+
+        Request(UnifiedDiff.FilePatch patch, Long expectedStamp) {
+            this.patch = patch;
+            this.expectedStamp = expectedStamp;
+        }
+    }
+
+    private static final class Target {
+        final Request request;
+        final String path;
+        VirtualFile file;
+        String newFilePath;
+        long stamp;
+        String newText;
+        String error;
+        // a later patch of the same file builds on newText and writes the combined result
+        boolean superseded;
+
+        Target(Request request) {
+            this.request = request;
+            this.path = request.patch.targetPath();
+        }
+    }
+
+    /**
+     * Must be called off the EDT. Returns {@code {"applied": [...], "conflicts": [...]}}; when
+     * {@code conflicts} is not empty no file was modified.
+     */
+    String apply(List<Request> requests) {
+        List<Target> targets = new ArrayList<>();
+        for (Request request : requests) {
+            Target target = new Target(request);
+            resolve(target);
+            targets.add(target);
+        }
+
+        if (!hasConflicts(targets)) {
+            ReadAction.nonBlocking(() -> {
+                Map<Object, Target> latest = new HashMap<>();
+                for (Target target : targets) {
+                    Object key = target.file != null ? target.file : target.newFilePath;
+                    computeNewText(target, latest.put(key, target));
+                }
+            }).expireWith(project).executeSynchronously();
+        }
+
+        if (!hasConflicts(targets)) {
+            ApplicationManager.getApplication().invokeAndWait(() -> write(targets), ModalityState.nonModal());
+        }
+
+        JsonArray applied = new JsonArray();
+        JsonArray conflicts = new JsonArray();
+        boolean failed = hasConflicts(targets);
+        for (Target target : targets) {
+            JsonObject entry = new JsonObject();
+            entry.addProperty("path", target.path);
+            if (target.error != null) {
+                entry.addProperty("error", target.error);
+                conflicts.add(entry);
+            } else if (!failed) {
+                entry.addProperty("modificationStamp", target.stamp);
+                applied.add(entry);
+            }
+        }
+
+        JsonObject result = new JsonObject();
+        result.add("applied", applied);
+        result.add("conflicts", conflicts);
+        return result.toString();
+    }
+
+    private void resolve(Target target) {
+        UnifiedDiff.FilePatch patch = target.request.patch;
+        if (patch.isDeletion()) {
+            target.error = "file_deletion_not_supported";
+            return;
+        }
+
+        if (patch.isCreation()) {
+            File file;
+            try {
+                file = ProjectPaths.toProjectFile(project.getBasePath(), target.path);
+            } catch (IllegalArgumentException e) {
+                target.error = e.getMessage();
+                return;
+            }
+            if (LocalFileSystem.getInstance().findFileByIoFile(file) != null || file.exists()) {
+                target.error = "file_already_exists";
+                return;
+            }
+            target.newFilePath = file.getAbsolutePath();
+            return;
+        }
+
+        try {
+            target.file = resolver.apply(target.path);
+        } catch (IllegalArgumentException e) {
+            target.error = e.getMessage();
+        }
+    }
+
+    /**
+     * @param previous the earlier target of the same file, whose result this patch applies to
+     */
+    private void computeNewText(Target target, Target previous) {
+        // non-blocking read actions may restart, so every attempt starts clean
+        target.error = null;
+        target.newText = null;
+        target.superseded = false;
+        if (!isInProjectContent(target)) {
+            target.error = "outside_project: " + target.path;
+            return;
+        }
+        String text = "";
+        if (previous != null) {
+            if (target.request.patch.isCreation()) {
+                target.error = "file_already_exists";
+                return;
+            }
+            if (previous.error != null || previous.newText == null) {
+                target.error = "previous_patch_failed";
+                return;
+            }
+            target.stamp = previous.stamp;
+            if (target.request.expectedStamp != null && target.request.expectedStamp != target.stamp) {
+                target.error = "stale_modification_stamp: " + target.stamp;
+                return;
+            }
+            text = previous.newText;
+            previous.superseded = true;
+        } else if (target.file != null) {
+            Document document = FileDocumentManager.getInstance().getDocument(target.file);
+            if (document == null) {
+                target.error = "not_a_text_file";
+                return;
+            }
+            target.stamp = document.getModificationStamp();
+            if (target.request.expectedStamp != null && target.request.expectedStamp != target.stamp) {
+                target.error = "stale_modification_stamp: " + target.stamp;
+                return;
+            }
+            text = document.getText();
+        }
+
+        try {
+            target.newText = UnifiedDiff.apply(text, target.request.patch);
+        } catch (IllegalArgumentException e) {
+            target.error = e.getMessage();
+        }
+    }
+
+    /**
+     * Patches may only touch project content: an existing file must be in it, a new file must go
+     * into a directory that is. Must be called in a read action.
+     */
+    private boolean isInProjectContent(Target target) {
+        ProjectFileIndex fileIndex = ProjectFileIndex.getInstance(project);
+        if (target.file != null) {
+            return fileIndex.isInContent(target.file);
+        }
+        for (File dir = new File(target.newFilePath).getParentFile(); dir != null; dir = dir.getParentFile()) {
+            VirtualFile existing = LocalFileSystem.getInstance().findFileByIoFile(dir);
+            if (existing != null) {
+                return fileIndex.isInContent(existing);
+            }
+        }
+        return false;
+    }
+
+    private void write(List<Target> targets) {
+        if (project.isDisposed()) {
+            targets.get(0).error = "project_disposed";
+            return;
+        }
+
+        List<VirtualFile> existing = new ArrayList<>();
+        for (Target target : targets) {
+            if (target.file != null) {
+                existing.add(target.file);
+            }
+        }
+        ReadonlyStatusHandler.OperationStatus status =
+                ReadonlyStatusHandler.getInstance(project).ensureFilesWritable(existing);
+        if (status.hasReadonlyFiles()) {
+            for (Target target : targets) {
+                if (target.file != null && !target.file.isWritable()) {
+                    target.error = "read_only_file";
+                }
+            }
+            if (!hasConflicts(targets)) {
+                targets.get(0).error = "read_only_file";
+            }
+            return;
+        }
+
+        // the documents may have been edited between the read action and now
+        for (Target target : targets) {
+            if (target.file == null) {
+                continue;
+            }
+            Document document = FileDocumentManager.getInstance().getDocument(target.file);
+            if (document == null || document.getModificationStamp() != target.stamp) {
+                target.error = "changed_during_apply";
+            }
+        }
+        if (hasConflicts(targets)) {
+            return;
+        }
+
+        List<Document> documents = new ArrayList<>();
+        WriteCommandAction.writeCommandAction(project)
+                .withName(COMMAND_NAME)
+                .withGlobalUndo()
+                .run(() -> {
+                    // create every new file before touching any document, so a failure leaves nothing changed
+                    List<VirtualFile> created = new ArrayList<>();
+                    List<Document> pending = new ArrayList<>();
+                    for (Target target : targets) {
+                        if (target.superseded) {
+                            continue;
+                        }
+                        VirtualFile file = target.file;
+                        if (file == null) {
+                            file = createFile(target);
+                            if (file != null) {
+                                created.add(file);
+                            }
+                        }
+                        Document document = file == null ? null : FileDocumentManager.getInstance().getDocument(file);
+                        if (document == null) {
+                            target.error = target.file == null ? "create_failed" : "not_a_text_file";
+                            deleteCreated(created);
+                            return;
+                        }
+                        pending.add(document);
+                    }
+
+                    int i = 0;
+                    for (Target target : targets) {
+                        if (!target.superseded) {
+                            replaceChangedRange(pending.get(i++), target.newText);
+                        }
+                    }
+                    documents.addAll(pending);
+                });
+
+        FileDocumentManager documentManager = FileDocumentManager.getInstance();
+        for (Document document : documents) {
+            documentManager.saveDocument(document);
+        }
+        for (Target target : targets) {
+            VirtualFile file = target.file != null ? target.file : LocalFileSystem.getInstance().findFileByPath(target.newFilePath);
+            Document document = file == null ? null : documentManager.getCachedDocument(file);
+            if (document != null) {
+                target.stamp = document.getModificationStamp();
+            }
+        }
+    }
+
+    private void deleteCreated(List<VirtualFile> created) {
+        for (VirtualFile file : created) {
+            try {
+                file.delete(this);
+            } catch (IOException e) {
+                // left empty on disk; no document was changed
+            }
+        }
+    }
+
+    private VirtualFile createFile(Target target) {
+        File file = new File(target.newFilePath);
+        try {
+            VirtualFile parent = VfsUtil.createDirectoryIfMissing(file.getParent());
+            return parent == null ? null : parent.createChildData(this, file.getName());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Replaces only the span that differs, so markers, folding and caret positions outside of it survive.
+     */
+    private static void replaceChangedRange(Document document, String newText) {
+        CharSequence oldText = document.getImmutableCharSequence();
+        int prefix = 0;
+        int maxPrefix = Math.min(oldText.length(), newText.length());
+        while (prefix < maxPrefix && oldText.charAt(prefix) == newText.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        int maxSuffix = maxPrefix - prefix;
+        while (suffix < maxSuffix
+                && oldText.charAt(oldText.length() - 1 - suffix) == newText.charAt(newText.length() - 1 - suffix)) {
+            suffix++;
+        }
+        if (prefix == oldText.length() && prefix == newText.length()) {
+            return;
+        }
+        document.replaceString(prefix, oldText.length() - suffix, newText.substring(prefix, newText.length() - suffix));
+    }
+
+    private static boolean hasConflicts(List<Target> targets) {
+        for (Target target : targets) {
+            if (target.error != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,261 @@
+package com.kirv.plugin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+/**
+ * Immutable snapshot of project-relative paths answering prefix, substring and fuzzy
+ * (subsequence) queries.
+ * <p>
+ * Paths are kept in sorted parallel arrays. Every path also stores a 64-bit mask of the
+ * characters it contains, so most non-matching paths are rejected with one bit test before
+ * any string is compared. {@link #update} derives the next snapshot by merging, so a few changed
+ * paths neither re-sort nor re-analyze the others.
+ */
+final class PathSearchIndex {
+    static final PathSearchIndex EMPTY = new PathSearchIndex(new String[0]);
+
+    private final String[] paths;
+    private final String[] lowerPaths;
+    private final int[] nameStarts;
+    private final long[] masks;
+
+    private PathSearchIndex(String[] sortedPaths) {
+        this(sortedPaths, new String[sortedPaths.length], new int[sortedPaths.length], new long[sortedPaths.length]);
+        for (int i = 0; i < paths.length; i++) {
+            analyze(i);
+        }
+    }
+
+    private PathSearchIndex(String[] paths, String[] lowerPaths, int[] nameStarts, long[] masks) {
+        this.paths = paths;
+        this.lowerPaths = lowerPaths;
+        this.nameStarts = nameStarts;
+        this.masks = masks;
+    }
+
+    private void analyze(int i) {
+        String lower = paths[i].toLowerCase(Locale.ROOT);
+        lowerPaths[i] = lower;
+        nameStarts[i] = lower.lastIndexOf('/') + 1;
+        masks[i] = charMask(lower);
+    }
+
+    static PathSearchIndex of(Collection<String> paths) {
+        String[] sorted = paths.stream().distinct().toArray(String[]::new);
+        Arrays.sort(sorted);
+        return new PathSearchIndex(sorted);
+    }
+
+    /**
+     * Returns a snapshot without {@code removed} and everything below them, then with {@code added}.
+     * Runs in O(n + k log n) for k changes: removals are found by binary search, additions are sorted
+     * on their own and merged in, and kept paths reuse their analysis.
+     */
+    PathSearchIndex update(Collection<String> added, Collection<String> removed) {
+        boolean[] dropped = new boolean[paths.length];
+        for (String path : removed) {
+            int exact = Arrays.binarySearch(paths, path);
+            if (exact >= 0) {
+                dropped[exact] = true;
+            }
+            // everything starting with "path/" sorts between "path/" and "path0"
+            int from = insertionPoint(path + "/");
+            int to = insertionPoint(path + (char) ('/' + 1));
+            Arrays.fill(dropped, from, to, true);
+        }
+        String[] additions = added.stream().distinct().toArray(String[]::new);
+        Arrays.sort(additions);
+
+        int capacity = paths.length + additions.length;
+        PathSearchIndex next = new PathSearchIndex(new String[capacity], new String[capacity], new int[capacity], new long[capacity]);
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < paths.length || j < additions.length) {
+            if (i < paths.length && dropped[i]) {
+                i++;
+                continue;
+            }
+            int order = i == paths.length ? 1 : j == additions.length ? -1 : paths[i].compareTo(additions[j]);
+            if (order <= 0) {
+                next.paths[size] = paths[i];
+                next.lowerPaths[size] = lowerPaths[i];
+                next.nameStarts[size] = nameStarts[i];
+                next.masks[size] = masks[i];
+                i++;
+                if (order == 0) {
+                    j++;
+                }
+            } else {
+                next.paths[size] = additions[j];
+                next.analyze(size);
+                j++;
+            }
+            size++;
+        }
+        return size == capacity ? next : new PathSearchIndex(Arrays.copyOf(next.paths, size),
+                Arrays.copyOf(next.lowerPaths, size), Arrays.copyOf(next.nameStarts, size), Arrays.copyOf(next.masks, size));
+    }
+
+    private int insertionPoint(String path) {
+        int index = Arrays.binarySearch(paths, path);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    int size() {
+        return paths.length;
+    }
+
+    /**
+     * Returns up to {@code limit} paths matching {@code query}, best first. File name prefix matches
+     * rank above file name substring matches, then path substring matches, then fuzzy matches.
+     */
+    List<String> find(String query, int limit) {
+        String q = query.trim().toLowerCase(Locale.ROOT).replace('\\', '/');
+        if (q.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        long queryMask = charMask(q);
+        PriorityQueue<Match> top = new PriorityQueue<>(limit + 1);
+        int worstScore = Integer.MIN_VALUE;
+
+        for (int i = 0; i < lowerPaths.length; i++) {
+            if ((masks[i] & queryMask) != queryMask) {
+                continue;
+            }
+
+            int score = score(lowerPaths[i], nameStarts[i], q, top.size() == limit ? worstScore : Integer.MIN_VALUE);
+            if (score == Integer.MIN_VALUE || top.size() == limit && score <= worstScore) {
+                continue;
+            }
+
+            top.add(new Match(i, score));
+            if (top.size() > limit) {
+                top.poll();
+            }
+            if (top.size() == limit) {
+                worstScore = top.peek().score;
+            }
+        }
+
+        Match[] ordered = top.toArray(new Match[0]);
+        Arrays.sort(ordered, (a, b) -> a.score != b.score ? Integer.compare(b.score, a.score) : Integer.compare(a.index, b.index));
+        List<String> result = new ArrayList<>(ordered.length);
+        for (Match match : ordered) {
+            result.add(paths[match.index]);
+        }
+        return result;
+    }
+
+    /**
+     * Scores one path, or returns {@link Integer#MIN_VALUE} when it does not match or cannot
+     * beat {@code floor}; lower-ranked match kinds are not even tried once the floor is above them.
+     */
+    static int score(String path, int nameStart, String q, int floor) {
+        int length = path.length();
+        if (path.startsWith(q, nameStart)) {
+            return 40_000 - length;
+        }
+        if (floor >= 30_000) {
+            return Integer.MIN_VALUE;
+        }
+        if (path.indexOf(q, nameStart) >= 0) {
+            return 30_000 - length;
+        }
+        if (floor >= 20_000) {
+            return Integer.MIN_VALUE;
+        }
+        if (path.indexOf(q) >= 0) {
+            return 20_000 - length;
+        }
+        if (floor >= 19_000) {
+            return Integer.MIN_VALUE;
+        }
+
+        int fuzzy = fuzzyScore(path, nameStart, q);
+        return fuzzy < 0 ? Integer.MIN_VALUE : Math.min(fuzzy * 16, 19_000) - length;
+    }
+
+    /**
+     * Scores {@code q} as a subsequence of {@code path}; consecutive characters, word boundaries
+     * and characters inside the file name score higher. Returns -1 when {@code q} is not a subsequence.
+     */
+    static int fuzzyScore(String path, int nameStart, String q) {
+        int qi = 0;
+        int score = 0;
+        int run = 0;
+        int last = -2;
+        for (int i = 0; i < path.length() && qi < q.length(); i++) {
+            if (path.charAt(i) != q.charAt(qi)) {
+                continue;
+            }
+
+            int charScore = 1;
+            if (i == last + 1) {
+                run++;
+                charScore += run * 2;
+            } else {
+                run = 0;
+            }
+            if (i == 0 || isBoundary(path.charAt(i - 1))) {
+                charScore += 3;
+            }
+            if (i >= nameStart) {
+                charScore += 1;
+            }
+            score += charScore;
+            last = i;
+            qi++;
+        }
+        return qi == q.length() ? score : -1;
+    }
+
+    private static boolean isBoundary(char c) {
+        return c == '/' || c == '.' || c == '_' || c == '-' || c == ' ';
+    }
+
+    static long charMask(String lower) {
+        long mask = 0;
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                mask |= 1L << (c - 'a');
+            } else if (c >= '0' && c <= '9') {
+                mask |= 1L << (26 + c - '0');
+            } else if (c == '.') {
+                mask |= 1L << 36;
+            } else if (c == '_') {
+                mask |= 1L << 37;
+            } else if (c == '-') {
+                mask |= 1L << 38;
+            } else if (c == '/') {
+                mask |= 1L << 39;
+            } else {
+                mask |= 1L << 63;
+            }
+        }
+        return mask;
+    }
+
+    private static final class Match implements Comparable<Match> {
+        final int index;
+        final int score;
+
+        Match(int index, int score) {
+            this.index = index;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(Match other) {
+            // min-heap on score; on ties the later (lexicographically greater) path is evicted first
+            return score != other.score ? Integer.compare(score, other.score) : Integer.compare(other.index, index);
+        }
+    }
+}
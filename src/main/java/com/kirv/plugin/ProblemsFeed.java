@@ -0,0 +1,255 @@
+package com.kirv.plugin;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.codeInsight.daemon.impl.DaemonCodeAnalyzerEx;
+import com.intellij.codeInsight.daemon.impl.HighlightInfo;
+import com.intellij.lang.annotation.HighlightSeverity;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.EditorFactory;
+import com.intellij.openapi.editor.event.DocumentEvent;
+import com.intellij.openapi.editor.event.DocumentListener;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.fileEditor.FileEditor;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Errors and warnings from the IDE's daemon analysis for files the agent is working on, so it does
+ * not have to run a full external compile to find them.
+ * <p>
+ * Files become tracked when they are edited or requested with {@code jide_get_problems}; at most
+ * {@link #MAX_TRACKED_FILES} recently touched files are kept. Whenever the daemon finishes a pass,
+ * the tracked files are re-read (debounced by {@link #DEBOUNCE_MS}) and only those whose problems
+ * changed are pushed as an {@code onProblemsChanged} event:
+ * {@code {"seq": n, "files": [{"path", "stamp", "problems": [{"severity", "line", "column", "message"}]}]}}.
+ * Highlighting only exists for files open in an editor; other files report an empty list.
+ */
+@Service(Service.Level.PROJECT)
+public final class ProblemsFeed implements Disposable {
+    static final String EVENT = "onProblemsChanged";
+    static final int MAX_TRACKED_FILES = 200;
+    static final int MAX_PROBLEMS_PER_FILE = 200;
+    private static final long DEBOUNCE_MS = 500;
+    private static final long TRACK_FOR_MS = 30 * 60 * 1000;
+
+    private final Project project;
+    private final List<PushChannel> sinks = new CopyOnWriteArrayList<>();
+    // access-ordered: the eldest entry is the least recently touched file
+    private final LinkedHashMap<VirtualFile, Long> tracked = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<VirtualFile, Entry> cache = new ConcurrentHashMap<>();
+    // what the UI has been told so far, to push only deltas
+    private final Map<VirtualFile, JsonArray> pushed = new ConcurrentHashMap<>();
+    private final AtomicLong daemonPasses = new AtomicLong();
+    private boolean refreshScheduled;
+    private long sequence;
+
+    ProblemsFeed(Project project) {
+        this.project = project;
+
+        project.getMessageBus().connect(this).subscribe(DaemonCodeAnalyzer.DAEMON_EVENT_TOPIC, new DaemonCodeAnalyzer.DaemonListener() {
+            @Override
+            public void daemonFinished(@NotNull Collection<? extends FileEditor> fileEditors) {
+                daemonPasses.incrementAndGet();
+                scheduleRefresh();
+            }
+        });
+        EditorFactory.getInstance().getEventMulticaster().addDocumentListener(new DocumentListener() {
+            @Override
+            public void documentChanged(@NotNull DocumentEvent event) {
+                // the multicaster reports edits in every open project
+                VirtualFile file = FileDocumentManager.getInstance().getFile(event.getDocument());
+                if (file != null && file.isInLocalFileSystem() && !project.isDisposed()
+                        && ProjectFileIndex.getInstance(project).isInContent(file)) {
+                    track(file);
+                }
+            }
+        }, this);
+    }
+
+    void addSink(PushChannel sink) {
+        if (!sinks.contains(sink)) {
+            sinks.add(sink);
+        }
+    }
+
+    void removeSink(PushChannel sink) {
+        sinks.remove(sink);
+    }
+
+    /**
+     * Returns the current problems of {@code file} as {@code {"stamp", "problems": [...]}} and keeps
+     * tracking it for pushed updates.
+     */
+    JsonObject getProblems(VirtualFile file) {
+        track(file);
+        return ReadAction.nonBlocking(() -> problemsOf(file).json)
+                .expireWith(this)
+                .executeSynchronously()
+                .deepCopy();
+    }
+
+    private void track(VirtualFile file) {
+        synchronized (tracked) {
+            tracked.put(file, System.currentTimeMillis());
+            if (tracked.size() > MAX_TRACKED_FILES) {
+                Iterator<VirtualFile> eldest = tracked.keySet().iterator();
+                forget(eldest.next());
+                eldest.remove();
+            }
+        }
+    }
+
+    private void scheduleRefresh() {
+        synchronized (tracked) {
+            if (refreshScheduled || tracked.isEmpty() || sinks.isEmpty()) {
+                return;
+            }
+            refreshScheduled = true;
+        }
+        AppExecutorUtil.getAppScheduledExecutorService().schedule(this::refresh, DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void refresh() {
+        List<VirtualFile> files = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        synchronized (tracked) {
+            refreshScheduled = false;
+            Iterator<Map.Entry<VirtualFile, Long>> it = tracked.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<VirtualFile, Long> entry = it.next();
+                if (now - entry.getValue() > TRACK_FOR_MS || !entry.getKey().isValid()) {
+                    forget(entry.getKey());
+                    it.remove();
+                } else {
+                    files.add(entry.getKey());
+                }
+            }
+        }
+        if (files.isEmpty() || project.isDisposed()) {
+            return;
+        }
+
+        // the read action restarts on every write action, so it only reads; pushed is updated below
+        Map<VirtualFile, Entry> current = ReadAction.nonBlocking(() -> {
+            Map<VirtualFile, Entry> result = new LinkedHashMap<>();
+            for (VirtualFile file : files) {
+                result.put(file, problemsOf(file));
+            }
+            return result;
+        }).expireWith(this).executeSynchronously();
+
+        JsonArray changed = new JsonArray();
+        for (Map.Entry<VirtualFile, Entry> entry : current.entrySet()) {
+            VirtualFile file = entry.getKey();
+            Entry problems = entry.getValue();
+            JsonArray previous = pushed.get(file);
+            if (previous == null ? !problems.problems.isEmpty() : !previous.equals(problems.problems)) {
+                pushed.put(file, problems.problems);
+                JsonObject delta = problems.json.deepCopy();
+                delta.addProperty("path", ProjectPaths.toBridgePath(project.getBasePath(), file.getPath()));
+                changed.add(delta);
+            }
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+        JsonObject data = new JsonObject();
+        synchronized (tracked) {
+            data.addProperty("seq", ++sequence);
+        }
+        data.add("files", changed);
+        for (PushChannel sink : sinks) {
+            sink.push(EVENT, data);
+        }
+    }
+
+    private void forget(VirtualFile file) {
+        cache.remove(file);
+        pushed.remove(file);
+    }
+
+    /**
+     * Reads the daemon's highlights of {@code file}. The result is reused while neither the document's
+     * modification stamp changed nor the daemon finished another pass (highlights can change without
+     * an edit, e.g. after a dependency changed). Must be called in a read action.
+     */
+    private Entry problemsOf(VirtualFile file) {
+        Document document = file.isValid() ? FileDocumentManager.getInstance().getCachedDocument(file) : null;
+        long stamp = document != null ? document.getModificationStamp() : file.getModificationStamp();
+        long pass = daemonPasses.get();
+        Entry cached = cache.get(file);
+        if (cached != null && cached.stamp == stamp && cached.daemonPass == pass) {
+            return cached;
+        }
+
+        JsonArray problems = new JsonArray();
+        if (document != null) {
+            DaemonCodeAnalyzerEx.processHighlights(document, project, HighlightSeverity.WARNING, 0, document.getTextLength(), info -> {
+                problems.add(toJson(document, info));
+                return problems.size() < MAX_PROBLEMS_PER_FILE;
+            });
+        }
+
+        JsonObject json = new JsonObject();
+        json.addProperty("stamp", stamp);
+        json.add("problems", problems);
+        Entry entry = new Entry(stamp, pass, problems, json);
+        cache.put(file, entry);
+        return entry;
+    }
+
+    private static JsonObject toJson(Document document, HighlightInfo info) {
+        int offset = Math.min(info.getStartOffset(), document.getTextLength());
+        int line = document.getLineNumber(offset);
+        JsonObject problem = new JsonObject();
+        problem.addProperty("severity", info.getSeverity().getName());
+        problem.addProperty("line", line);
+        problem.addProperty("column", offset - document.getLineStartOffset(line));
+        problem.addProperty("message", info.getDescription());
+        return problem;
+    }
+
+    @Override
+    public void dispose() {
+        sinks.clear();
+        cache.clear();
+        pushed.clear();
+    }
+
+    static ProblemsFeed getInstance(Project project) {
+        return project.getService(ProblemsFeed.class);
+    }
+
+    private static final class Entry {
+        final long stamp;
+        final long daemonPass;
+        final JsonArray problems;
+        final JsonObject json;
+
+        Entry(long stamp, long daemonPass, JsonArray problems, JsonObject json) {
+            this.stamp = stamp;
+            this.daemonPass = daemonPass;
+            this.problems = problems;
+            this.json = json;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.kirv.plugin;
+
+import com.google.gson.JsonObject;
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.intellij.execution.process.KillableProcessHandler;
+import com.intellij.execution.process.ProcessEvent;
+import com.intellij.execution.process.ProcessListener;
+import com.intellij.execution.process.ProcessOutputTypes;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+
+/**
+ * Runs a process for {@code jide_run} in the project directory with the IDE's process handling and
+ * the environment of the user's shell, as the IDE's own run configurations do.
+ * <p>
+ * Stdout and stderr are collected in {@link OutputRing}s of {@link #MAX_BUFFERED_CHARS} each, so a
+ * chatty build only keeps its most recent output, and are handed to the chunk sink as
+ * {@code {"stdout"?, "stderr"?, "dropped"?}} frames every {@link #FLUSH_INTERVAL_MS}. Without a sink
+ * the tail of the output is returned with the exit code instead.
+ */
+final class ProcessRunner {
+    static final int MAX_BUFFERED_CHARS = 256 * 1024;
+    private static final int MAX_PARALLEL_RUNS = 4;
+    private static final long FLUSH_INTERVAL_MS = 100;
+    private static final long KILL_AFTER_MS = 5000;
+    // builds run for minutes: keep them off the bridge executor
+    static final ExecutorService EXECUTOR =
+            AppExecutorUtil.createBoundedApplicationPoolExecutor("Agent run", MAX_PARALLEL_RUNS);
+
+    private final Project project;
+    private final BridgeQuery query;
+    private final List<String> command;
+    private final Consumer<JsonObject> chunkSink;
+    private final OutputRing stdout = new OutputRing(MAX_BUFFERED_CHARS);
+    private final OutputRing stderr = new OutputRing(MAX_BUFFERED_CHARS);
+
+    /**
+     * @param query      the bridge query, polled for cancellation; may be {@code null}
+     * @param chunkSink  receives coalesced output frames; {@code null} to return the output tail at the end
+     */
+    ProcessRunner(Project project, BridgeQuery query, List<String> command, Consumer<JsonObject> chunkSink) {
+        this.project = project;
+        this.query = query;
+        this.command = command;
+        this.chunkSink = chunkSink;
+    }
+
+    /**
+     * Runs the process to completion and returns {@code {"exitCode", "durationMs"}}, plus
+     * {@code "stdout"}, {@code "stderr"} and {@code "dropped"} when there is no chunk sink.
+     * Canceling the query destroys the process.
+     */
+    JsonObject run() {
+        String workDirectory = project.getBasePath();
+        if (workDirectory == null) {
+            throw new IllegalArgumentException("no_project_directory");
+        }
+
+        GeneralCommandLine commandLine = new GeneralCommandLine(command)
+                .withWorkDirectory(workDirectory)
+                .withParentEnvironmentType(GeneralCommandLine.ParentEnvironmentType.CONSOLE)
+                .withCharset(StandardCharsets.UTF_8);
+        KillableProcessHandler handler;
+        try {
+            handler = new KillableProcessHandler(commandLine);
+        } catch (ExecutionException e) {
+            throw new IllegalArgumentException("process_start_failed: " + e.getMessage());
+        }
+        handler.addProcessListener(new ProcessListener() {
+            @Override
+            public void onTextAvailable(@NotNull ProcessEvent event, @NotNull Key outputType) {
+                if (outputType == ProcessOutputTypes.STDOUT) {
+                    stdout.append(event.getText());
+                } else if (outputType == ProcessOutputTypes.STDERR) {
+                    stderr.append(event.getText());
+                }
+            }
+        });
+
+        long start = System.nanoTime();
+        handler.startNotify();
+        try {
+            while (!handler.waitFor(FLUSH_INTERVAL_MS)) {
+                if (isCanceled()) {
+                    break;
+                }
+                flush();
+            }
+        } finally {
+            if (!handler.isProcessTerminated()) {
+                stop(handler);
+            }
+        }
+        long durationMs = (System.nanoTime() - start) / 1_000_000;
+        if (query != null) {
+            query.checkCanceled();
+        }
+
+        JsonObject result = new JsonObject();
+        result.addProperty("exitCode", handler.getExitCode());
+        result.addProperty("durationMs", durationMs);
+        if (chunkSink != null) {
+            flush();
+        } else {
+            result.addProperty("stdout", stdout.drain());
+            result.addProperty("stderr", stderr.drain());
+            result.addProperty("dropped", stdout.takeDropped() + stderr.takeDropped());
+        }
+        return result;
+    }
+
+    private void flush() {
+        if (chunkSink == null || stdout.isEmpty() && stderr.isEmpty()) {
+            return;
+        }
+        JsonObject frame = new JsonObject();
+        if (!stdout.isEmpty()) {
+            frame.addProperty("stdout", stdout.drain());
+        }
+        if (!stderr.isEmpty()) {
+            frame.addProperty("stderr", stderr.drain());
+        }
+        long dropped = stdout.takeDropped() + stderr.takeDropped();
+        if (dropped > 0) {
+            frame.addProperty("dropped", dropped);
+        }
+        chunkSink.accept(frame);
+    }
+
+    private static void stop(KillableProcessHandler handler) {
+        handler.destroyProcess();
+        if (!handler.waitFor(KILL_AFTER_MS) && handler.canKillProcess()) {
+            handler.killProcess();
+        }
+    }
+
+    private boolean isCanceled() {
+        return query != null && query.isCanceled();
+    }
+
+    /**
+     * Fixed-size character ring keeping the most recent output and counting what it had to drop.
+     */
+    static final class OutputRing {
+        private final char[] buffer;
+        private int start;
+        private int size;
+        private long dropped;
+
+        OutputRing(int capacity) {
+            buffer = new char[capacity];
+        }
+
+        synchronized void append(String text) {
+            int from = 0;
+            int length = text.length();
+            if (length > buffer.length) {
+                from = length - buffer.length;
+                dropped += from;
+                length = buffer.length;
+            }
+            int overflow = size + length - buffer.length;
+            if (overflow > 0) {
+                start = (start + overflow) % buffer.length;
+                size -= overflow;
+                dropped += overflow;
+            }
+
+            int end = (start + size) % buffer.length;
+            int first = Math.min(length, buffer.length - end);
+            text.getChars(from, from + first, buffer, end);
+            text.getChars(from + first, from + length, buffer, 0);
+            size += length;
+        }
+
+        synchronized boolean isEmpty() {
+            return size == 0;
+        }
+
+        synchronized String drain() {
+            int first = Math.min(size, buffer.length - start);
+            StringBuilder text = new StringBuilder(size);
+            text.append(buffer, start, first);
+            text.append(buffer, 0, size - first);
+            start = 0;
+            size = 0;
+            return text.toString();
+        }
+
+        synchronized long takeDropped() {
+            long result = dropped;
+            dropped = 0;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.kirv.plugin;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileCopyEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileCreateEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory index of the project's content files, used by {@code jide_find_files}.
+ * <p>
+ * Built in the background from {@link ProjectFileIndex} (excluded and ignored files are skipped)
+ * and kept up to date from VFS events. All mutations run on one sequential executor and publish
+ * a new immutable {@link PathSearchIndex} snapshot, so queries never wait for an update; VFS
+ * batches are merged into the previous snapshot rather than rebuilding it.
+ */
+@Service(Service.Level.PROJECT)
+public final class ProjectPathIndex implements Disposable {
+    private static final Logger LOG = Logger.getInstance(ProjectPathIndex.class);
+    private static final long UPDATE_DELAY_MS = 300;
+
+    private final Project project;
+    private final ExecutorService updater =
+            AppExecutorUtil.createBoundedApplicationPoolExecutor("Agent path index", 1);
+    private final List<String> pendingAdded = new ArrayList<>();
+    private final List<String> pendingRemoved = new ArrayList<>();
+    private volatile PathSearchIndex snapshot = PathSearchIndex.EMPTY;
+    private volatile boolean ready;
+    private boolean started;
+    private boolean updateScheduled;
+
+    ProjectPathIndex(Project project) {
+        this.project = project;
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void after(@NotNull List<? extends @NotNull VFileEvent> events) {
+                onVfsEvents(events);
+            }
+        });
+    }
+
+    /**
+     * Starts the initial background build if it has not been started yet.
+     */
+    void ensureStarted() {
+        synchronized (this) {
+            if (started) {
+                return;
+            }
+            started = true;
+        }
+        updater.execute(this::rebuild);
+    }
+
+    boolean isReady() {
+        return ready;
+    }
+
+    int size() {
+        return snapshot.size();
+    }
+
+    List<String> find(String query, int limit) {
+        ensureStarted();
+        return snapshot.find(query, limit);
+    }
+
+    private void rebuild() {
+        if (project.isDisposed()) {
+            return;
+        }
+
+        List<String> collected = ReadAction.nonBlocking(() -> {
+            List<String> result = new ArrayList<>();
+            ProjectFileIndex.getInstance(project).iterateContent(file -> {
+                if (!file.isDirectory()) {
+                    result.add(toBridgePath(file.getPath()));
+                }
+                return true;
+            });
+            return result;
+        }).expireWith(this).executeSynchronously();
+
+        snapshot = PathSearchIndex.of(collected);
+        ready = true;
+        LOG.info("Agent path index built: " + snapshot.size() + " files");
+    }
+
+    private void onVfsEvents(List<? extends VFileEvent> events) {
+        synchronized (this) {
+            if (!started) {
+                return;
+            }
+            for (VFileEvent event : events) {
+                if (event instanceof VFileCreateEvent || event instanceof VFileCopyEvent) {
+                    // for a copy, getPath() is where the new file was created
+                    pendingAdded.add(event.getPath());
+                } else if (event instanceof VFileDeleteEvent) {
+                    pendingRemoved.add(event.getPath());
+                } else if (event instanceof VFileMoveEvent moveEvent) {
+                    pendingRemoved.add(moveEvent.getOldPath());
+                    pendingAdded.add(moveEvent.getNewPath());
+                } else if (event instanceof VFilePropertyChangeEvent propertyEvent && propertyEvent.isRename()) {
+                    pendingRemoved.add(propertyEvent.getOldPath());
+                    pendingAdded.add(propertyEvent.getNewPath());
+                }
+            }
+            if (updateScheduled || pendingAdded.isEmpty() && pendingRemoved.isEmpty()) {
+                return;
+            }
+            updateScheduled = true;
+        }
+        AppExecutorUtil.getAppScheduledExecutorService().schedule(
+                () -> updater.execute(this::applyPending), UPDATE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void applyPending() {
+        List<String> added;
+        List<String> removed;
+        synchronized (this) {
+            updateScheduled = false;
+            added = new ArrayList<>(pendingAdded);
+            removed = new ArrayList<>(pendingRemoved);
+            pendingAdded.clear();
+            pendingRemoved.clear();
+        }
+        if (project.isDisposed()) {
+            return;
+        }
+
+        List<String> removedPaths = new ArrayList<>(removed.size());
+        for (String path : removed) {
+            removedPaths.add(toBridgePath(path));
+        }
+
+        List<String> collected = ReadAction.nonBlocking(() -> {
+            ProjectFileIndex fileIndex = ProjectFileIndex.getInstance(project);
+            List<String> result = new ArrayList<>();
+            for (String path : added) {
+                VirtualFile file = LocalFileSystem.getInstance().findFileByPath(path);
+                if (file == null || !file.isValid()) {
+                    continue;
+                }
+                if (file.isDirectory()) {
+                    fileIndex.iterateContentUnderDirectory(file, child -> {
+                        if (!child.isDirectory()) {
+                            result.add(toBridgePath(child.getPath()));
+                        }
+                        return true;
+                    });
+                } else if (fileIndex.isInContent(file) && !fileIndex.isExcluded(file)) {
+                    result.add(toBridgePath(file.getPath()));
+                }
+            }
+            return result;
+        }).expireWith(this).executeSynchronously();
+
+        snapshot = snapshot.update(collected, removedPaths);
+    }
+
+    private String toBridgePath(String path) {
+        return ProjectPaths.toBridgePath(project.getBasePath(), path);
+    }
+
+    @Override
+    public void dispose() {
+        // pending read actions expire with this service; queued updates bail out on project.isDisposed()
+    }
+
+    static ProjectPathIndex getInstance(Project project) {
+        return project.getService(ProjectPathIndex.class);
+    }
+}
@@ -0,0 +1,56 @@
+package com.kirv.plugin;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Path conversions shared by the bridge; free of IDE classes so they can be benchmarked headless.
+ */
+final class ProjectPaths {
+    private ProjectPaths() {
+    }
+
+    /**
+     * Resolves a bridge path: absolute paths are kept, relative ones are taken against {@code basePath}.
+     */
+    static File toIoFile(String basePath, String filePath) {
+        File file = new File(filePath);
+        if (!file.isAbsolute()) {
+            file = new File(basePath, filePath);
+        }
+        return file;
+    }
+
+    /**
+     * Resolves a bridge path like {@link #toIoFile} and canonicalizes it, so {@code ..} segments and
+     * symlinks cannot lead out of {@code basePath}.
+     *
+     * @throws IllegalArgumentException {@code outside_project} if the file is not below {@code basePath}
+     */
+    static File toProjectFile(String basePath, String filePath) {
+        if (basePath == null) {
+            throw new IllegalArgumentException("no_project_directory");
+        }
+        try {
+            File base = new File(basePath).getCanonicalFile();
+            File file = toIoFile(basePath, filePath).getCanonicalFile();
+            if (file.equals(base) || !file.toPath().startsWith(base.toPath())) {
+                throw new IllegalArgumentException("outside_project: " + filePath);
+            }
+            return file;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("wrong_path: " + filePath);
+        }
+    }
+
+    /**
+     * Inverse of {@link #toIoFile}: the path relative to {@code basePath} when the file is inside it,
+     * otherwise the absolute path unchanged.
+     */
+    static String toBridgePath(String basePath, String path) {
+        if (basePath != null && path.startsWith(basePath + "/")) {
+            return path.substring(basePath.length() + 1);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,93 @@
+package com.kirv.plugin;
+
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Staging area for large proposed file contents that the UI uploads in chunks before opening
+ * them in a diff ({@code jide_upload_chunk}, then {@code jide_open_proposed_diff} with {@code "upload"}).
+ * <p>
+ * Chunks may arrive out of order because bridge commands run in parallel, so each carries its
+ * index. Uploads are bounded in size and dropped when left unused.
+ */
+@Service(Service.Level.PROJECT)
+public final class ProposedContentUploads {
+    static final long MAX_UPLOAD_CHARS = 32L * 1024 * 1024;
+    static final long MAX_TOTAL_CHARS = 64L * 1024 * 1024;
+    private static final long EXPIRE_AFTER_MS = 10 * 60 * 1000;
+
+    private final Map<String, Upload> uploads = new HashMap<>();
+    private long totalChars;
+
+    /**
+     * Stores one chunk and returns the number of chunks received so far for this upload.
+     *
+     * @throws IllegalArgumentException if the upload would exceed the size limits
+     */
+    synchronized int addChunk(String uploadId, int index, String text) {
+        expireStale();
+
+        Upload upload = uploads.computeIfAbsent(uploadId, id -> new Upload());
+        String previous = upload.chunks.get(index);
+        long delta = text.length() - (previous == null ? 0 : previous.length());
+        if (upload.chars + delta > MAX_UPLOAD_CHARS || totalChars + delta > MAX_TOTAL_CHARS) {
+            throw new IllegalArgumentException("upload_too_large");
+        }
+
+        upload.chunks.put(index, text);
+        upload.chars += delta;
+        upload.touchedAt = System.currentTimeMillis();
+        totalChars += delta;
+        return upload.chunks.size();
+    }
+
+    /**
+     * Removes the upload and returns its chunks joined in index order.
+     *
+     * @throws IllegalArgumentException if the upload is unknown or has missing chunks
+     */
+    synchronized String take(String uploadId) {
+        Upload upload = uploads.remove(uploadId);
+        if (upload == null) {
+            throw new IllegalArgumentException("unknown_upload: " + uploadId);
+        }
+        totalChars -= upload.chars;
+
+        StringBuilder text = new StringBuilder((int) upload.chars);
+        int expected = 0;
+        for (Map.Entry<Integer, String> chunk : upload.chunks.entrySet()) {
+            if (chunk.getKey() != expected++) {
+                throw new IllegalArgumentException("incomplete_upload: " + uploadId);
+            }
+            text.append(chunk.getValue());
+        }
+        return text.toString();
+    }
+
+    private void expireStale() {
+        long now = System.currentTimeMillis();
+        Iterator<Upload> it = uploads.values().iterator();
+        while (it.hasNext()) {
+            Upload upload = it.next();
+            if (now - upload.touchedAt > EXPIRE_AFTER_MS) {
+                totalChars -= upload.chars;
+                it.remove();
+            }
+        }
+    }
+
+    static ProposedContentUploads getInstance(Project project) {
+        return project.getService(ProposedContentUploads.class);
+    }
+
+    private static final class Upload {
+        final TreeMap<Integer, String> chunks = new TreeMap<>();
+        long chars;
+        long touchedAt = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,214 @@
+package com.kirv.plugin;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.cef.callback.CefQueryCallback;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Java → web UI event channel.
+ * <p>
+ * The UI opens a persistent {@code jide_subscribe} query and every frame is delivered as one
+ * {@code success()} call carrying a JSON array of {@code {"event": ..., "data": ...}} objects.
+ * Events are queued in a bounded buffer, coalesced by key and flushed in batches. Until the UI
+ * subscribes, frames fall back to calling the legacy global functions ({@code onFilesDrag(...)},
+ * {@code onPluginShow()}, ...) in a single script per frame with JSON-escaped arguments; while
+ * the page is still loading such frames are held back so no event is lost to a blank page.
+ */
+final class PushChannel {
+    private static final Logger LOG = Logger.getInstance(PushChannel.class);
+    private static final ScheduledExecutorService FLUSHER =
+            AppExecutorUtil.createBoundedScheduledExecutorService("Agent push channel", 1);
+
+    static final int MAX_QUEUE_SIZE = 512;
+    static final int MAX_FRAME_EVENTS = 128;
+    static final int MAX_FRAME_CHARS = 256 * 1024;
+    static final long FLUSH_DELAY_MS = 16;
+
+    private final Consumer<String> scriptExecutor;
+    private final ArrayDeque<Event> queue = new ArrayDeque<>();
+    // held from taking a frame until it is delivered, so concurrent flushes cannot reorder frames
+    private final Object deliveryLock = new Object();
+    private CefQueryCallback subscriber;
+    private long subscriberQueryId;
+    private boolean flushScheduled;
+    private boolean pageReady;
+    private long droppedEvents;
+
+    PushChannel(@NotNull Consumer<String> scriptExecutor) {
+        this.scriptExecutor = scriptExecutor;
+    }
+
+    /**
+     * Queues an event for the UI.
+     *
+     * @param data event payload, {@code null} for events without arguments
+     */
+    void push(@NotNull String event, @Nullable JsonElement data) {
+        push(event, data, null);
+    }
+
+    /**
+     * Queues an event for the UI. A pending event with the same non-null {@code coalesceKey} is
+     * replaced, so only the latest state is delivered.
+     */
+    void push(@NotNull String event, @Nullable JsonElement data, @Nullable String coalesceKey) {
+        synchronized (this) {
+            if (coalesceKey != null) {
+                Iterator<Event> it = queue.iterator();
+                while (it.hasNext()) {
+                    if (coalesceKey.equals(it.next().coalesceKey)) {
+                        it.remove();
+                    }
+                }
+            }
+
+            if (queue.size() >= MAX_QUEUE_SIZE) {
+                queue.pollFirst();
+                if (droppedEvents++ % MAX_QUEUE_SIZE == 0) {
+                    LOG.warn("Push channel queue is full, dropping oldest events (" + droppedEvents + " dropped)");
+                }
+            }
+            queue.addLast(new Event(event, data, coalesceKey));
+
+            if (!flushScheduled) {
+                flushScheduled = true;
+                FLUSHER.schedule(this::flush, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Marks whether the page can run the legacy fallback scripts; set to false while it loads.
+     */
+    void setPageReady(boolean ready) {
+        synchronized (this) {
+            pageReady = ready;
+            if (!ready || queue.isEmpty() || flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+        }
+        FLUSHER.schedule(this::flush, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized boolean isSubscribed() {
+        return subscriber != null;
+    }
+
+    void subscribe(long queryId, @NotNull CefQueryCallback callback) {
+        CefQueryCallback previous;
+        synchronized (this) {
+            previous = subscriber;
+            subscriber = callback;
+            subscriberQueryId = queryId;
+        }
+        if (previous != null && previous != callback) {
+            previous.failure(2, "subscription_replaced");
+        }
+        flush();
+    }
+
+    synchronized void unsubscribe(long queryId) {
+        if (subscriber != null && subscriberQueryId == queryId) {
+            subscriber = null;
+        }
+    }
+
+    /**
+     * Drops the current subscriber without notifying it, e.g. when its message router is disposed.
+     */
+    synchronized void unsubscribeAll() {
+        subscriber = null;
+    }
+
+    /**
+     * Delivers everything queued so far, in order. Normally called by the scheduler; call it directly
+     * when pending events must reach the UI before the subscription goes away. Concurrent calls take
+     * turns, while {@link #push} never waits for a delivery.
+     */
+    void flush() {
+        synchronized (deliveryLock) {
+            deliverQueued();
+        }
+    }
+
+    private void deliverQueued() {
+        while (true) {
+            CefQueryCallback target;
+            StringBuilder frame = new StringBuilder("[");
+            StringBuilder script = new StringBuilder();
+
+            synchronized (this) {
+                flushScheduled = false;
+                if (queue.isEmpty()) {
+                    return;
+                }
+
+                target = subscriber;
+                if (target == null && !pageReady) {
+                    // delivered by setPageReady(true) or subscribe() once the page is up
+                    return;
+                }
+                // large events (e.g. file drop chunks) get frames of their own so the UI renders them incrementally
+                for (int i = 0; i < MAX_FRAME_EVENTS && !queue.isEmpty(); i++) {
+                    if (frame.length() + script.length() >= MAX_FRAME_CHARS) {
+                        break;
+                    }
+                    Event event = queue.pollFirst();
+                    if (target != null) {
+                        if (frame.length() > 1) {
+                            frame.append(',');
+                        }
+                        frame.append(event.toJson());
+                    } else {
+                        event.appendLegacyScript(script);
+                    }
+                }
+            }
+
+            if (target != null) {
+                target.success(frame.append(']').toString());
+            } else {
+                scriptExecutor.accept(script.toString());
+            }
+        }
+    }
+
+    private static final class Event {
+        final String name;
+        final JsonElement data;
+        final String coalesceKey;
+
+        Event(String name, JsonElement data, String coalesceKey) {
+            this.name = name;
+            this.data = data;
+            this.coalesceKey = coalesceKey;
+        }
+
+        JsonObject toJson() {
+            JsonObject object = new JsonObject();
+            object.addProperty("event", name);
+            if (data != null) {
+                object.add("data", data);
+            }
+            return object;
+        }
+
+        void appendLegacyScript(StringBuilder script) {
+            // JsonElement.toString() escapes quotes, backslashes, and line separators, so the
+            // payload is a valid JS literal.
+            script.append("if (typeof ").append(name).append(" === 'function') { ")
+                    .append(name).append('(').append(data == null ? "" : data.toString()).append("); }\n");
+        }
+    }
+}
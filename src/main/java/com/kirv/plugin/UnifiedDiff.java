@@ -0,0 +1,233 @@
+package com.kirv.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal unified diff parser and applier (the {@code diff -u} / {@code git diff} text format).
+ * <p>
+ * Hunks are matched on their context and removed lines; when a hunk is not found at its recorded
+ * line it is searched for elsewhere after the previous hunk, so patches made against a slightly
+ * shifted file still apply. A hunk that cannot be found is a conflict.
+ */
+final class UnifiedDiff {
+    static final String DEV_NULL = "/dev/null";
+    private static final Pattern HUNK_HEADER = Pattern.compile("^@@ -(\\d+)(?:,(\\d+))? \\+(\\d+)(?:,(\\d+))? @@.*");
+
+    private UnifiedDiff() {
+    }
+
+    static final class FilePatch {
+        final String oldPath;
+        final String newPath;
+        final List<Hunk> hunks = new ArrayList<>();
+
+        FilePatch(String oldPath, String newPath) {
+            this.oldPath = oldPath;
+            this.newPath = newPath;
+        }
+
+        boolean isCreation() {
+            return DEV_NULL.equals(oldPath);
+        }
+
+        boolean isDeletion() {
+            return DEV_NULL.equals(newPath);
+        }
+
+        String targetPath() {
+            return isDeletion() ? oldPath : newPath;
+        }
+    }
+
+    static final class Hunk {
+        final int oldStart;
+        final List<String> oldLines = new ArrayList<>();
+        final List<String> newLines = new ArrayList<>();
+        boolean oldMissingNewline;
+        boolean newMissingNewline;
+
+        Hunk(int oldStart) {
+            this.oldStart = oldStart;
+        }
+    }
+
+    /**
+     * Parses every file section of a unified diff.
+     * <p>
+     * A hunk spans as many lines as its {@code @@ -a,b +c,d @@} header counts, so removed or added
+     * lines that look like {@code ---}/{@code +++} file headers and blank lines after the last hunk
+     * are read correctly. Inside a hunk an empty line is an empty context line whose leading space was
+     * stripped; a line that cannot belong to a hunk ends it early, for diffs with miscounted headers.
+     *
+     * @throws IllegalArgumentException if the text contains no file sections or a malformed hunk
+     */
+    static List<FilePatch> parse(String diff) {
+        List<FilePatch> patches = new ArrayList<>();
+        String[] lines = diff.replace("\r\n", "\n").split("\n", -1);
+        FilePatch current = null;
+        Hunk hunk = null;
+        int oldRemaining = 0;
+        int newRemaining = 0;
+        char lastKind = 0;
+
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            if (hunk != null && line.startsWith("\\")) {
+                // "\ No newline at end of file", also right after the hunk's last line
+                if (lastKind == ' ' || lastKind == '-') {
+                    hunk.oldMissingNewline = true;
+                }
+                if (lastKind == ' ' || lastKind == '+') {
+                    hunk.newMissingNewline = true;
+                }
+                continue;
+            }
+
+            if (oldRemaining > 0 || newRemaining > 0) {
+                char kind = line.isEmpty() ? ' ' : line.charAt(0);
+                String content = line.isEmpty() ? "" : line.substring(1);
+                boolean counted = switch (kind) {
+                    case ' ' -> oldRemaining > 0 && newRemaining > 0;
+                    case '-' -> oldRemaining > 0;
+                    case '+' -> newRemaining > 0;
+                    default -> false;
+                };
+                if (counted) {
+                    if (kind != '+') {
+                        hunk.oldLines.add(content);
+                        oldRemaining--;
+                    }
+                    if (kind != '-') {
+                        hunk.newLines.add(content);
+                        newRemaining--;
+                    }
+                    lastKind = kind;
+                    continue;
+                }
+                // fewer lines than the header announced: read this line as a header or free text
+                oldRemaining = 0;
+                newRemaining = 0;
+            }
+
+            if (line.startsWith("--- ") && i + 1 < lines.length && lines[i + 1].startsWith("+++ ")) {
+                current = new FilePatch(stripPath(line.substring(4)), stripPath(lines[i + 1].substring(4)));
+                patches.add(current);
+                hunk = null;
+                i++;
+                continue;
+            }
+
+            Matcher header = HUNK_HEADER.matcher(line);
+            if (header.matches()) {
+                if (current == null) {
+                    throw new IllegalArgumentException("malformed_patch: hunk without file header");
+                }
+                hunk = new Hunk(Integer.parseInt(header.group(1)));
+                current.hunks.add(hunk);
+                oldRemaining = header.group(2) == null ? 1 : Integer.parseInt(header.group(2));
+                newRemaining = header.group(4) == null ? 1 : Integer.parseInt(header.group(4));
+                lastKind = 0;
+                continue;
+            }
+
+            // git headers (diff --git, index, mode lines), blank lines and free text between sections
+            hunk = null;
+        }
+
+        if (patches.isEmpty()) {
+            throw new IllegalArgumentException("malformed_patch: no file headers");
+        }
+        return patches;
+    }
+
+    /**
+     * Applies {@code patch} to {@code text} and returns the patched text.
+     *
+     * @throws IllegalArgumentException with a {@code patch_conflict} message if a hunk does not match
+     */
+    static String apply(String text, FilePatch patch) {
+        boolean endsWithNewline = text.isEmpty() || text.endsWith("\n");
+        List<String> lines = new ArrayList<>(List.of(text.split("\n", -1)));
+        if (endsWithNewline) {
+            lines.remove(lines.size() - 1);
+        }
+
+        int delta = 0;
+        int searchFrom = 0;
+        for (int h = 0; h < patch.hunks.size(); h++) {
+            Hunk hunk = patch.hunks.get(h);
+            int expected = hunk.oldLines.isEmpty() ? hunk.oldStart : hunk.oldStart - 1;
+            int position = findHunk(lines, hunk.oldLines, Math.max(searchFrom, expected + delta), searchFrom);
+            if (position < 0) {
+                throw new IllegalArgumentException("patch_conflict: " + patch.targetPath() + " hunk #" + (h + 1));
+            }
+
+            List<String> target = lines.subList(position, position + hunk.oldLines.size());
+            target.clear();
+            target.addAll(hunk.newLines);
+
+            delta = position - expected + hunk.newLines.size() - hunk.oldLines.size();
+            searchFrom = position + hunk.newLines.size();
+            if (searchFrom >= lines.size()) {
+                if (hunk.newMissingNewline) {
+                    endsWithNewline = false;
+                } else if (hunk.oldMissingNewline) {
+                    endsWithNewline = true;
+                }
+            }
+        }
+
+        String result = String.join("\n", lines);
+        return endsWithNewline && !lines.isEmpty() ? result + "\n" : result;
+    }
+
+    private static int findHunk(List<String> lines, List<String> oldLines, int expected, int minPosition) {
+        int maxPosition = lines.size() - oldLines.size();
+        if (expected > maxPosition) {
+            expected = maxPosition;
+        }
+        for (int distance = 0; ; distance++) {
+            int after = expected + distance;
+            int before = expected - distance;
+            boolean afterInRange = after <= maxPosition;
+            boolean beforeInRange = before >= minPosition;
+            if (!afterInRange && !beforeInRange) {
+                return -1;
+            }
+            if (afterInRange && after >= minPosition && matchesAt(lines, oldLines, after)) {
+                return after;
+            }
+            if (distance > 0 && beforeInRange && before <= maxPosition && matchesAt(lines, oldLines, before)) {
+                return before;
+            }
+        }
+    }
+
+    private static boolean matchesAt(List<String> lines, List<String> oldLines, int position) {
+        for (int i = 0; i < oldLines.size(); i++) {
+            if (!lines.get(position + i).equals(oldLines.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String stripPath(String header) {
+        String path = header;
+        int tab = path.indexOf('\t');
+        if (tab >= 0) {
+            path = path.substring(0, tab);
+        }
+        path = path.trim();
+        if (path.startsWith("\"") && path.endsWith("\"") && path.length() > 1) {
+            path = path.substring(1, path.length() - 1);
+        }
+        if (path.startsWith("a/") || path.startsWith("b/")) {
+            path = path.substring(2);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,127 @@
+package com.kirv.plugin;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves bridge paths (absolute, or relative to the project base) to {@link VirtualFile}s.
+ * <p>
+ * Files already known to the VFS are returned without touching the disk and are refreshed
+ * asynchronously; only paths missing from the VFS fall back to a synchronous refresh. Resolved
+ * files are cached by path and evicted on delete, move and rename events.
+ */
+@Service(Service.Level.PROJECT)
+public final class VirtualFileResolver implements Disposable {
+    private static final int MAX_CACHE_SIZE = 4096;
+
+    private final Project project;
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+    VirtualFileResolver(Project project) {
+        this.project = project;
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void after(@NotNull List<? extends @NotNull VFileEvent> events) {
+                onVfsEvents(events);
+            }
+        });
+    }
+
+    /**
+     * @throws IllegalArgumentException if the path is empty or the file does not exist
+     */
+    VirtualFile resolve(String filePath) {
+        if (filePath.isEmpty()) {
+            throw new IllegalArgumentException("empty_file_path");
+        }
+
+        Entry cached = cache.get(filePath);
+        if (cached != null && cached.isCurrent()) {
+            return cached.file;
+        }
+
+        // Convert to absolute path if relative
+        File file = ProjectPaths.toIoFile(project.getBasePath(), filePath);
+
+        VirtualFile vFile = LocalFileSystem.getInstance().findFileByIoFile(file);
+        if (vFile != null && vFile.isValid()) {
+            // pick up external edits without making the caller wait for the disk
+            vFile.refresh(true, false);
+        } else {
+            if (!file.exists()) {
+                throw new IllegalArgumentException("file_not_found: " + file.getAbsolutePath() + "\n(" + project.getBasePath() + ")\n[" + filePath + "]");
+            }
+            vFile = LocalFileSystem.getInstance().refreshAndFindFileByIoFile(file);
+            if (vFile == null) throw new IllegalArgumentException("File not found in VFS: " + file.getAbsolutePath());
+        }
+
+        if (cache.size() >= MAX_CACHE_SIZE) {
+            cache.clear();
+        }
+        cache.put(filePath, new Entry(vFile));
+        return vFile;
+    }
+
+    private void onVfsEvents(List<? extends VFileEvent> events) {
+        if (cache.isEmpty()) {
+            return;
+        }
+        for (VFileEvent event : events) {
+            String removedPath = null;
+            if (event instanceof VFileDeleteEvent) {
+                removedPath = event.getPath();
+            } else if (event instanceof VFileMoveEvent moveEvent) {
+                removedPath = moveEvent.getOldPath();
+            } else if (event instanceof VFilePropertyChangeEvent propertyEvent && propertyEvent.isRename()) {
+                removedPath = propertyEvent.getOldPath();
+            }
+
+            if (removedPath != null) {
+                String path = removedPath;
+                String directoryPrefix = removedPath + "/";
+                cache.values().removeIf(entry -> entry.path.equals(path) || entry.path.startsWith(directoryPrefix));
+            }
+        }
+    }
+
+    @Override
+    public void dispose() {
+        cache.clear();
+    }
+
+    private static final class Entry {
+        final VirtualFile file;
+        final String path;
+
+        Entry(VirtualFile file) {
+            this.file = file;
+            this.path = file.getPath();
+        }
+
+        /**
+         * A moved or renamed file keeps its {@link VirtualFile} but no longer lives at the cached path.
+         */
+        boolean isCurrent() {
+            return file.isValid() && file.getPath().equals(path);
+        }
+    }
+
+    static VirtualFileResolver getInstance(Project project) {
+        return project.getService(VirtualFileResolver.class);
+    }
+}
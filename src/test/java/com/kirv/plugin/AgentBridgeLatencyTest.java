@@ -0,0 +1,146 @@
+package com.kirv.plugin;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+import com.intellij.ui.jcef.JBCefApp;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * End-to-end latency of the agent window against a local stand-in for the agent server.
+ * <p>
+ * A stub HTTP server serves a scripted page ({@code agent-stub/index.html}) that drives {@code jide_*}
+ * commands through the real message router and reports its timings back. The suite checks the time
+ * from creating the tool window browser to the page's first bridge round trip, and the p50/p99
+ * round-trip latency per command, against limits that can be overridden with the
+ * {@code agent.latency.*} system properties. Skipped where JCEF is not available.
+ */
+public class AgentBridgeLatencyTest extends BasePlatformTestCase {
+    private static final Logger LOG = Logger.getInstance(AgentBridgeLatencyTest.class);
+    private static final int TIMEOUT_SECONDS = 60;
+
+    private HttpServer server;
+    private Path configFile;
+    private final AtomicLong readyAt = new AtomicLong();
+    private final AtomicReference<String> results = new AtomicReference<>();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::servePage);
+        server.createContext("/ready", exchange -> {
+            readyAt.compareAndSet(0, System.nanoTime());
+            respond(exchange, "text/plain", new byte[0]);
+        });
+        server.createContext("/results", exchange -> {
+            results.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            respond(exchange, "text/plain", new byte[0]);
+        });
+        server.start();
+
+        // handed to the browser directly: app services may already have read the user's real config
+        configFile = Files.createTempFile("code_agent_cnfg", ".env");
+        Files.writeString(configFile, "HTTP_PORT=" + server.getAddress().getPort() + "\n");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            server.stop(0);
+            Files.deleteIfExists(configFile);
+        } catch (Throwable e) {
+            addSuppressedException(e);
+        } finally {
+            super.tearDown();
+        }
+    }
+
+    public void testOpenToReadyAndRoundTripLatency() {
+        // JUnit 3 style tests cannot report an assumption failure as skipped
+        if (!JBCefApp.isSupported()) {
+            LOG.warn("JCEF is not supported in this environment, skipping agent latency suite");
+            return;
+        }
+
+        long openedAt = System.nanoTime();
+        Browser browser = new Browser(JcefBrowser::new, getProject(), new ConfigService(configFile));
+        try {
+            PlatformTestUtil.waitWithEventsDispatching("agent page did not become ready",
+                    () -> readyAt.get() != 0, TIMEOUT_SECONDS);
+            double readyMs = (readyAt.get() - openedAt) / 1_000_000.0;
+
+            PlatformTestUtil.waitWithEventsDispatching("agent page did not report results",
+                    () -> results.get() != null, TIMEOUT_SECONDS);
+            JsonObject report = JsonParser.parseString(results.get()).getAsJsonObject();
+            assertFalse("stub page failed: " + report, report.has("error"));
+
+            LOG.info("Agent window open-to-ready: " + String.format("%.1f", readyMs) + " ms");
+            assertTrue("open-to-ready took " + readyMs + " ms", readyMs <= limit("maxReadyMs", 5000));
+            for (String opCode : report.keySet()) {
+                assertLatency(opCode, report.getAsJsonArray(opCode));
+            }
+        } finally {
+            browser.suspend();
+        }
+    }
+
+    private static void assertLatency(String opCode, JsonArray samples) {
+        double[] latencies = new double[samples.size()];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = samples.get(i).getAsDouble();
+        }
+        assertTrue(opCode + ": no samples", latencies.length > 0);
+        Arrays.sort(latencies);
+
+        double p50 = percentile(latencies, 0.50);
+        double p99 = percentile(latencies, 0.99);
+        LOG.info(opCode + " round trip: p50 " + String.format("%.2f", p50) + " ms, p99 " + String.format("%.2f", p99) + " ms");
+        assertTrue(opCode + " p50 " + p50 + " ms", p50 <= limit("maxP50Ms", 20));
+        assertTrue(opCode + " p99 " + p99 + " ms", p99 <= limit("maxP99Ms", 100));
+    }
+
+    private static double percentile(double[] sorted, double percentile) {
+        int index = (int) Math.ceil(sorted.length * percentile) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static double limit(String name, double defaultValue) {
+        String value = System.getProperty("agent.latency." + name);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+    private void servePage(HttpExchange exchange) throws IOException {
+        try (InputStream page = getClass().getClassLoader().getResourceAsStream("agent-stub/index.html")) {
+            if (page == null) {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+            respond(exchange, "text/html; charset=utf-8", page.readAllBytes());
+        }
+    }
+
+    private static void respond(HttpExchange exchange, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.kirv.plugin;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+import com.intellij.ui.jcef.JBCefApp;
+
+/**
+ * Toggling the agent window must not pile up message routers, query handlers or bridge transports:
+ * the counters exposed by {@link BrowserPool} and {@link JcefBrowser} stay constant over repeated
+ * show/hide/suspend/resume cycles and drop back once the browser is released.
+ */
+public class BrowserLifecycleLeakTest extends BasePlatformTestCase {
+    private static final Logger LOG = Logger.getInstance(BrowserLifecycleLeakTest.class);
+    private static final int CYCLES = 10;
+
+    public void testCountersStayConstantAcrossShowHideSuspendCycles() {
+        // JUnit 3 style tests cannot report an assumption failure as skipped
+        if (!JBCefApp.isSupported()) {
+            LOG.warn("JCEF is not supported in this environment, skipping browser lifecycle test");
+            return;
+        }
+
+        BrowserPool pool = BrowserPool.getInstance();
+        int handlersBefore = pool.queryHandlerCount();
+        int transportsBefore = JcefBrowser.attachedTransportCount();
+
+        Browser browser = new Browser(JcefBrowser::new, getProject());
+        try {
+            PlatformTestUtil.dispatchAllEventsInIdeEventQueue();
+            int routers = BrowserPool.liveRouterCount();
+            int handlers = pool.queryHandlerCount();
+            int transports = JcefBrowser.attachedTransportCount();
+            assertEquals(1, routers);
+            assertEquals(handlersBefore + 1, handlers);
+            assertEquals(transportsBefore + 1, transports);
+
+            for (int i = 0; i < CYCLES; i++) {
+                browser.onHide();
+                browser.onShow();
+                assertCounts("show/hide cycle " + i, routers, handlers, transports, pool);
+
+                browser.onHide();
+                browser.suspend();
+                PlatformTestUtil.dispatchAllEventsInIdeEventQueue();
+                assertCounts("suspended in cycle " + i, routers, handlersBefore, transportsBefore, pool);
+
+                browser.resume();
+                PlatformTestUtil.dispatchAllEventsInIdeEventQueue();
+                assertCounts("resumed in cycle " + i, routers, handlers, transports, pool);
+            }
+        } finally {
+            browser.suspend();
+        }
+        PlatformTestUtil.dispatchAllEventsInIdeEventQueue();
+        assertEquals(handlersBefore, pool.queryHandlerCount());
+        assertEquals(transportsBefore, JcefBrowser.attachedTransportCount());
+        assertEquals(1, BrowserPool.liveRouterCount());
+    }
+
+    private static void assertCounts(String stage, int routers, int handlers, int transports, BrowserPool pool) {
+        assertEquals(stage + ": live routers", routers, BrowserPool.liveRouterCount());
+        assertEquals(stage + ": query handlers", handlers, pool.queryHandlerCount());
+        assertEquals(stage + ": attached transports", transports, JcefBrowser.attachedTransportCount());
+    }
+}
@@ -0,0 +1,117 @@
+package com.kirv.plugin;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Parsing and applying unified diffs; hunk extents come from the counts in their {@code @@} headers.
+ */
+public class UnifiedDiffTest {
+
+    @Test
+    public void appliesSimpleHunk() {
+        String diff = """
+                --- a/f
+                +++ b/f
+                @@ -1,3 +1,3 @@
+                 one
+                -two
+                +TWO
+                 three
+                """;
+        assertEquals("one\nTWO\nthree\n", apply("one\ntwo\nthree\n", diff));
+    }
+
+    @Test
+    public void ignoresBlankLinesAfterLastHunk() {
+        String diff = "--- a/f\n+++ b/f\n@@ -1,2 +1,2 @@\n one\n-two\n+TWO\n\n\n";
+        assertEquals("one\nTWO\n", apply("one\ntwo\n", diff));
+    }
+
+    @Test
+    public void blankLineBetweenFileSectionsIsNotContext() {
+        String diff = """
+                --- a/f
+                +++ b/f
+                @@ -1,1 +1,1 @@
+                -old f
+                +new f
+
+                --- a/g
+                +++ b/g
+                @@ -1,1 +1,1 @@
+                -old g
+                +new g
+                """;
+        List<UnifiedDiff.FilePatch> patches = UnifiedDiff.parse(diff);
+        assertEquals(2, patches.size());
+        assertEquals("new f\n", UnifiedDiff.apply("old f\n", patches.get(0)));
+        assertEquals("new g\n", UnifiedDiff.apply("old g\n", patches.get(1)));
+    }
+
+    @Test
+    public void emptyContextLineWithStrippedSpaceInsideHunk() {
+        String diff = "--- a/f\n+++ b/f\n@@ -1,3 +1,3 @@\n a\n\n-b\n+B\n";
+        assertEquals("a\n\nB\n", apply("a\n\nb\n", diff));
+    }
+
+    @Test
+    public void removedAndAddedLinesThatLookLikeFileHeaders() {
+        String diff = """
+                --- a/f
+                +++ b/f
+                @@ -1,2 +1,2 @@
+                --- old
+                +++ new
+                 tail
+                """;
+        List<UnifiedDiff.FilePatch> patches = UnifiedDiff.parse(diff);
+        assertEquals(1, patches.size());
+        assertEquals(1, patches.get(0).hunks.size());
+        assertEquals("++ new\ntail\n", UnifiedDiff.apply("-- old\ntail\n", patches.get(0)));
+    }
+
+    @Test
+    public void hunkHeaderWithoutCountsSpansOneLine() {
+        String diff = "--- a/f\n+++ b/f\n@@ -2 +2 @@\n-b\n+B\n";
+        assertEquals("a\nB\nc\n", apply("a\nb\nc\n", diff));
+    }
+
+    @Test
+    public void noNewlineMarkerAfterLastLine() {
+        String diff = "--- a/f\n+++ b/f\n@@ -1,1 +1,1 @@\n-a\n\\ No newline at end of file\n+b\n\\ No newline at end of file\n";
+        assertEquals("b", apply("a", diff));
+    }
+
+    @Test
+    public void creationFromDevNull() {
+        String diff = "--- /dev/null\n+++ b/new.txt\n@@ -0,0 +1,2 @@\n+x\n+y\n";
+        UnifiedDiff.FilePatch patch = UnifiedDiff.parse(diff).get(0);
+        assertTrue(patch.isCreation());
+        assertEquals("new.txt", patch.targetPath());
+        assertEquals("x\ny\n", UnifiedDiff.apply("", patch));
+    }
+
+    @Test
+    public void undercountedHunkEndsAtNextHeader() {
+        String diff = "--- a/f\n+++ b/f\n@@ -1,5 +1,5 @@\n-a\n+A\n@@ -3,1 +3,1 @@\n-c\n+C\n";
+        UnifiedDiff.FilePatch patch = UnifiedDiff.parse(diff).get(0);
+        assertEquals(2, patch.hunks.size());
+        assertEquals("A\nb\nC\n", UnifiedDiff.apply("a\nb\nc\n", patch));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTextWithoutFileHeaders() {
+        UnifiedDiff.parse("just some text\n");
+    }
+
+    private static String apply(String text, String diff) {
+        List<UnifiedDiff.FilePatch> patches = UnifiedDiff.parse(diff);
+        assertEquals(1, patches.size());
+        return UnifiedDiff.apply(text, patches.get(0));
+    }
+}